@@ -15,29 +15,42 @@
  */
 package org.wso2.carbon.registry.rest.api;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
+import org.wso2.carbon.registry.rest.api.content.BlobStore;
+import org.wso2.carbon.registry.rest.api.content.ContentResponses;
+import org.wso2.carbon.registry.rest.api.content.ResourceContent;
+import org.wso2.carbon.registry.rest.api.delete.SubtreeDeleter;
+import org.wso2.carbon.registry.rest.api.job.Job;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 
@@ -53,13 +66,28 @@ public class Artifact extends RegistryRestSuper {
 
     private Log log = LogFactory.getLog(Artifact.class);
     private static final String COLLECTION_MEDIA_TYPE = "application/atomcoll+xml";
+    public static final String COLLECTION_PAGE_SIZE_PROPERTY = "registry.rest.api.collection.pageSize";
+    static final int DEFAULT_COLLECTION_PAGE_SIZE = 1000;
+    public static final String DELETE_JOB_TYPE = "delete";
+    // a failed listing must not be closed as a complete JSON array, and the response stream is closed by the container
+    private static final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
     /**
      * This method get the resource content of the requested resource.
      * If the path is collection it returns the paths inside that collection.
      * If resource it return the content of the resource.
      *
-     * @param path - Path of the resource/collection in the registry.
+     * For a collection, a page of child paths is returned if start/size or a cursor is given, with the cursor of
+     * the next page in the X-Next-Cursor header. Otherwise all child paths are streamed page by page.
+     *
+     * @param path    - Path of the resource/collection in the registry.
+     * @param start   - Offset of the first child path of the page, collections only.
+     * @param size    - Number of child paths of the page, collections only.
+     * @param cursor  - Cursor of the page returned in the X-Next-Cursor header of the previous page.
+     * @param range   - Range header, the requested byte ranges of the resource content.
+     * @param ifRange - If-Range header, the ranges are served only if the resource is unchanged since then.
      * @return Response, if resource content stream, else resource paths array.HTTP 200 OK.
      */
     @GET
@@ -69,47 +97,168 @@ public class Artifact extends RegistryRestSuper {
                   httpMethod = "GET",
                   notes = "Fetch content of a resource")//TODO add return type based on resource or collection
     @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the resource content and returned in body"),
+                            @ApiResponse(code = 206, message = "Requested ranges of the resource content returned in body"),
+                            @ApiResponse(code = 304, message = "Resource not modified"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Given specific resource not found"),
-                            @ApiResponse(code = 500, message = "Internal server error occurred")})
-    public Response getResource(@PathParam("path") List<PathSegment> path, @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
+                            @ApiResponse(code = 416, message = "Requested range not satisfiable"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred"),
+                            @ApiResponse(code = 503, message = "Too many downloads in progress")})
+    public Response getResource(@PathParam("path") List<PathSegment> path,
+                                @QueryParam("start") int start,
+                                @QueryParam("size") int size,
+                                @QueryParam("cursor") String cursor,
+                                @HeaderParam("Range") String range,
+                                @HeaderParam("If-Range") String ifRange,
+                                @HeaderParam("Accept-Encoding") String acceptEncoding,
+                                @Context RestAPIAuthContext authContext,
+                                @Context Request request,
+                                @Context Registry registry) {
 
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
 
             String resourcePath = getResourcePath(path);
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-
-            if (!registry.resourceExists(resourcePath)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).type(RestAPIConstants.TYPE_JSON).build();
+            // fetch the metadata first, a full get of a collection would load all the child paths
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return resourceNotFound(resourcePath).type(RestAPIConstants.TYPE_JSON).build();
             }
-            Resource resource = registry.get(resourcePath);
             // check whether the resource is a collection, if collection return the paths inside the collection.
             if (resource instanceof Collection) {
-
-                Collection collection = (Collection) resource;
-                String[] resourcePaths = collection.getChildren();
-                return Response.ok().entity(resourcePaths).type(RestAPIConstants.TYPE_JSON)
-                        .build();
+                if (start == 0 && size == 0 && (cursor == null || cursor.isEmpty())) {
+                    return Response.ok(getChildrenOutput(registry, resourcePath)).type(RestAPIConstants.TYPE_JSON)
+                            .build();
+                }
+                return getChildrenPage(registry, resourcePath, start, size, cursor);
             } else {
-                // get the content of the resource as a stream
+                // conditional requests are answered from the metadata, before the content is loaded
+                Response.ResponseBuilder notModified = evaluatePreconditions(request, resource);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                resource = registry.get(resourcePath);
+                // get the content of the resource, or the requested byte ranges of it
                 String fileName = resourcePath.substring(resourcePath.lastIndexOf('/') + 1);
-                return Response.ok(resource.getContentStream()).type(resource.getMediaType())
-                        .header("Content-Disposition",
-                                "attachment; filename=" + fileName).build();
+                ResourceContent content = new ResourceContent(resource, authContext.getTenantId());
+                return ContentResponses.build(content, range, ifRange, fileName, getEntityTag(resource),
+                                              acceptEncoding).build();
             }
-        } catch (RegistryException e) {
+        } catch (RegistryException | IOException e) {
             log.error("Failed to get resource " + path, e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
     }
 
+    /**
+     * This method returns the headers of the requested resource from its metadata, without loading the content.
+     * For a resource the media type, the validators and, if known without reading the content, the content length are
+     * returned. For a collection the number of children is returned in the X-Child-Count header.
+     *
+     * @param path - Path of the resource/collection in the registry.
+     * @return Response - HTTP 200 OK without a body.
+     */
+    @HEAD
+    @Path("/{path:.*}")
+    @ApiOperation(value = "Get the headers of a resource",
+                  httpMethod = "HEAD",
+                  notes = "Check the existence, type, size and validators of a resource without fetching its content")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the resource"),
+                            @ApiResponse(code = 304, message = "Resource not modified"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Given specific resource not found"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+    public Response getResourceHeaders(@PathParam("path") List<PathSegment> path,
+                                       @Context RestAPIAuthContext authContext,
+                                       @Context Request request,
+                                       @Context Registry registry) {
+
+        String resourcePath = getResourcePath(path);
+        try {
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            if (resource instanceof Collection) {
+                // the registry counts the children without loading the child paths
+                return Response.ok().type(RestAPIConstants.TYPE_JSON)
+                        .header(RestAPIConstants.CHILD_COUNT_HEADER, ((Collection) resource).getChildCount()).build();
+            }
+            Response.ResponseBuilder notModified = evaluatePreconditions(request, resource);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            String mediaType = resource.getMediaType() != null ? resource.getMediaType()
+                                                                : MediaType.APPLICATION_OCTET_STREAM;
+            Response.ResponseBuilder builder = Response.ok().type(mediaType).tag(getEntityTag(resource))
+                    .header(ContentResponses.ACCEPT_RANGES_HEADER, "bytes");
+            if (resource.getLastModified() != null) {
+                builder.lastModified(resource.getLastModified());
+            }
+            // only the content kept in the blob store has a length recorded in the metadata
+            long length = new ResourceContent(resource, authContext.getTenantId()).getKnownLength();
+            if (length >= 0) {
+                builder.header(ContentResponses.CONTENT_LENGTH_HEADER, length);
+            }
+            return builder.build();
+
+        } catch (RegistryException e) {
+            log.error("Failed to get the headers of resource " + resourcePath, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * This method returns a page of the child paths of the collection, fetched with the paged registry get.
+     */
+    private Response getChildrenPage(Registry registry, String collectionPath, int start, int size, String cursor)
+            throws RegistryException {
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                int[] position = Page.decodeCursor(cursor);
+                start = position[0];
+                size = position[1];
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            }
+        } else if (!ValidationUtils.validatePagination(start, size)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        String[] children = registry.get(collectionPath, start, size).getChildren();
+        Response.ResponseBuilder builder = Response.ok(children).type(RestAPIConstants.TYPE_JSON);
+        // a full page means there may be more children
+        if (children.length >= size) {
+            builder.header(RestAPIConstants.NEXT_CURSOR_HEADER, Page.encodeCursor(start + size, size));
+        }
+        return builder.build();
+    }
+
+    /**
+     * This method writes all the child paths of the collection as a JSON array, fetching and writing one page at a
+     * time so that the memory use does not depend on the size of the collection.
+     */
+    private StreamingOutput getChildrenOutput(final Registry registry, final String collectionPath) {
+        final int pageSize = Integer.getInteger(COLLECTION_PAGE_SIZE_PROPERTY, DEFAULT_COLLECTION_PAGE_SIZE);
+        return outputStream -> {
+            try (JsonGenerator generator = jsonFactory.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                int start = 0;
+                String[] children;
+                do {
+                    children = registry.get(collectionPath, start, pageSize).getChildren();
+                    for (String child : children) {
+                        generator.writeString(child);
+                    }
+                    generator.flush();
+                    start += pageSize;
+                } while (children.length >= pageSize);
+                generator.writeEndArray();
+            } catch (RegistryException e) {
+                log.error("Failed to list the children of collection " + collectionPath, e);
+                throw new IOException("Failed to list the children of collection " + collectionPath, e);
+            }
+        };
+    }
+
     /**
      * This method creates/update the resource sent as the payload to the registry.
      *
@@ -132,29 +281,22 @@ public class Artifact extends RegistryRestSuper {
     public Response createResource(@PathParam("path") List<PathSegment> path,
                                    InputStream contentStream,
                                    @HeaderParam("Content-Type") String contentType,
-                                   @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
+                                   @Context RestAPIAuthContext authContext,
+                                   @Context Registry registry) {
 
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
 
             String resourcePath = getResourcePath(path);
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-
-            if (registry.resourceExists(resourcePath)) {
+            Resource resource = fetchResource(registry, resourcePath);
+            if (resource != null) {
                 // if collection already exists return conflict
                 if (contentType.contains(COLLECTION_MEDIA_TYPE)) {
                     return Response.status(Response.Status.CONFLICT).entity(
                             "Collection already exist " + resourcePath).build();
                 }
-                Resource resource = registry.get(resourcePath);
                 if (contentType.equals(resource.getMediaType())) {
-                    resource.setContent(contentStream);
-                    registry.put(resourcePath, resource);
+                    putContent(registry, authContext.getTenantId(), resourcePath, resource, contentStream);
+                    MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
                     return Response.status(Response.Status.NO_CONTENT).entity("Updated : " + resourcePath).build();
 
                 } else {
@@ -162,35 +304,48 @@ public class Artifact extends RegistryRestSuper {
                 }
 
             } else {
-                Resource resource;
-                // check for collection media type
-                if (contentType.equals(COLLECTION_MEDIA_TYPE)) {
-                    resource = registry.newCollection();
-                } else {
-                    // otherwise create a resource instance
-                    resource = registry.newResource();
-                    resource.setMediaType(contentType);
-                    resource.setContentStream(contentStream);
-                }
                 try {
-                    registry.put(resourcePath, resource);
+                    // check for collection media type
+                    if (contentType.equals(COLLECTION_MEDIA_TYPE)) {
+                        resource = registry.newCollection();
+                        registry.put(resourcePath, resource);
+                    } else {
+                        // otherwise create a resource instance
+                        resource = registry.newResource();
+                        resource.setMediaType(contentType);
+                        putContent(registry, authContext.getTenantId(), resourcePath, resource, contentStream);
+                    }
+                    MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
                     return Response.status(Response.Status.CREATED).entity("Created : " + resource.getPath()).build();
-                } catch (RegistryException e) {
+                } catch (RegistryException | IOException e) {
                     log.error("Failed to create/update resource on " + path, e);
                     return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
                 }
             }
-        } catch (RegistryException e) {
+        } catch (RegistryException | IOException e) {
             log.error("Failed to create resource " + path, e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
     }
 
+    /**
+     * Sets the content on the resource and puts it. Large content of a blob media type is kept in the blob store,
+     * if it is enabled; any other content is handed to the registry.
+     */
+    private static void putContent(Registry registry, int tenantId, String resourcePath, Resource resource,
+                                   InputStream contentStream) throws RegistryException, IOException {
+        BlobStore.putContent(registry, tenantId, resourcePath, resource, contentStream);
+    }
+
     /**
      * This method delete the requested resource.
+     * A collection deleted recursively is deleted bottom-up in throttled batches, one transaction per batch, so other
+     * writers are not blocked for the whole delete.
      *
-     * @param path - path segment of the resource path
-     * @return Response - HTTP 204 No Content.
+     * @param path      - path segment of the resource path
+     * @param recursive - If true, a collection is deleted in batches instead of one transaction.
+     * @param async     - If true, the delete runs as a job and its id is returned right away.
+     * @return Response - HTTP 204 No Content, HTTP 202 Accepted with the job if async.
      */
     @DELETE
     @Path("/{path:.*}")
@@ -198,29 +353,36 @@ public class Artifact extends RegistryRestSuper {
     @ApiOperation(value = "Delete a resource",
                   httpMethod = "DELETE",
                   notes = "Delete a resource")
-    @ApiResponses(value = { @ApiResponse(code = 204, message = "Resource deleted successfully"),
+    @ApiResponses(value = { @ApiResponse(code = 202, message = "Delete job queued"),
+                            @ApiResponse(code = 204, message = "Resource deleted successfully"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Specified resource not found"),
-                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+                            @ApiResponse(code = 500, message = "Internal server error occurred"),
+                            @ApiResponse(code = 503, message = "Job queue is full")})
     public Response deleteResource(@PathParam("path") List<PathSegment> path,
-                                   @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                   @QueryParam("recursive") boolean recursive,
+                                   @QueryParam("async") boolean async,
+                                   @Context RestAPIAuthContext authContext,
+                                   @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         String resourcePath = getResourcePath(path);
-        Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-
         try {
-            if (!registry.resourceExists(resourcePath)) {
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
             }
+            final boolean subtree = recursive && resource instanceof Collection;
+            if (async) {
+                return submitJob(DELETE_JOB_TYPE, resourcePath, null, authContext, job -> {
+                    delete(registry, resourcePath, subtree, job, authContext.getTenantId());
+                    if (!subtree) {
+                        job.setProgress(1, 1);
+                    }
+                });
+            }
             // if resource exists delete the resource
-            registry.delete(resourcePath);
+            delete(registry, resourcePath, subtree, null, authContext.getTenantId());
             return Response.status(Response.Status.NO_CONTENT).build();
 
         } catch (RegistryException e) {
@@ -228,4 +390,15 @@ public class Artifact extends RegistryRestSuper {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
     }
+
+    private static void delete(Registry registry, String resourcePath, boolean subtree, Job job, int tenantId)
+            throws RegistryException {
+        if (subtree) {
+            new SubtreeDeleter(registry, job).delete(resourcePath);
+            return;
+        }
+        registry.delete(resourcePath);
+        MetaDataCache.invalidate(tenantId, resourcePath);
+        RatingAggregateStore.invalidate(tenantId, resourcePath);
+    }
 }
@@ -21,17 +21,14 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
-import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.DELETE;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -65,17 +62,10 @@ public class Association extends RegistryRestSuper {
     public Response addAssociation(@QueryParam("path") String sourcePath,
                                    @QueryParam("targetPath") String targetPath,
                                    @QueryParam("type") String type,
-                                   @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                   @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
 
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(sourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + sourcePath).build();
@@ -108,17 +98,10 @@ public class Association extends RegistryRestSuper {
     public Response deleteAssociation(@QueryParam("path") String sourcePath,
                                       @QueryParam("targetPath") String targetPath,
                                       @QueryParam("type") String type,
-                                      @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                      @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
 
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(sourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + sourcePath).build();
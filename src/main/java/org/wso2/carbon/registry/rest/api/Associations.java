@@ -22,23 +22,21 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Association;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.rest.api.model.AssociationModel;
-import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -71,16 +69,9 @@ public class Associations extends PaginationCalculation<Association> {
                             @ApiResponse(code = 404, message = "Specified resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response addAssociations(@QueryParam("path") String sourcePath, AssociationModel[] association,
-                                    @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                    @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             // check for resource exist
             if (!registry.resourceExists(sourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(RestAPIConstants.RESOURCE_NOT_FOUND).build();
@@ -104,6 +95,7 @@ public class Associations extends PaginationCalculation<Association> {
      * @param type-      - Type of association,
      * @param start-     - Start page number,
      * @param size-      - Number of records to be retrieved
+     * @param cursor-    - Cursor of the page returned in the X-Next-Cursor header of the previous page
      * @return Response the array of AssociationModel. HTTP 200 OK.
      */
     @GET
@@ -121,16 +113,10 @@ public class Associations extends PaginationCalculation<Association> {
                                     @QueryParam("type") String type,
                                     @QueryParam("start") int start,
                                     @QueryParam("size") int size,
-                                    @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                    @QueryParam("cursor") String cursor,
+                                    @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         Association[] associations;
-        Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
         try {
             if (!registry.resourceExists(sourcePath)) {
                 // if resource not found
@@ -147,38 +133,21 @@ public class Associations extends PaginationCalculation<Association> {
             log.error("User does not have required permission to access the resource", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
-        return getPaginatedResults(associations, start, size, "", "");
+        return getPaginatedResults(associations, start, size, cursor);
     }
 
     @Override
-    protected Response getPaginatedResults(Association[] associations, int start, int size,
-                                           String sortBy, String sortOrder) {
+    protected Comparator<Association> getOrdering() {
+        return Comparator.comparing(Association::getDestinationPath, Comparator.nullsFirst(String::compareTo))
+                .thenComparing(Association::getAssociationType, Comparator.nullsFirst(String::compareTo));
+    }
 
-        Association[] paginatedAssociations;
+    @Override
+    protected Object toEntity(List<Association> associations) {
         List<AssociationModel> associationModels = new ArrayList<AssociationModel>();
-
-        if (start == 0 && size == 0) {
-            for (Association association : associations) {
-                associationModels.add(new AssociationModel(association));
-            }
-            return Response.ok(associationModels.toArray(new AssociationModel[associationModels.size()])).build();
-
-        } else if (associations.length < start) {
-
-            return Response.status(Response.Status.BAD_REQUEST).build();
-
-        } else if (associations.length < start + size) {
-
-            paginatedAssociations = new Association[associations.length - start];
-            System.arraycopy(associations, start, paginatedAssociations, 0, (associations.length - start));
-        } else {
-            paginatedAssociations = new Association[size];
-            System.arraycopy(associations, start, paginatedAssociations, 0, size);
-        }
-        for (Association association : paginatedAssociations) {
+        for (Association association : associations) {
             associationModels.add(new AssociationModel(association));
         }
-        return Response.ok(associationModels.toArray(new AssociationModel[associationModels.size()])).build();
-
+        return associationModels.toArray(new AssociationModel[associationModels.size()]);
     }
 }
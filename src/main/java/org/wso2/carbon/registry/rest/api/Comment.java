@@ -21,20 +21,17 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.rest.api.model.CommentModel;
-import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -69,16 +66,9 @@ public class Comment extends RegistryRestSuper {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response getComment(@QueryParam("path") String resourcePath,
                                @QueryParam("id") long commentId,
-                               @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                               @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
@@ -123,15 +113,8 @@ public class Comment extends RegistryRestSuper {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response addComment(@QueryParam("path") String resourcePath,
                                String commentText,
-                               @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                               @Context Registry registry) {
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             // check for the existence of the resource
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
@@ -165,16 +148,9 @@ public class Comment extends RegistryRestSuper {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response editComment(@QueryParam("path") String resourcePath,
                                 @QueryParam("id") long commentId, String commentText,
-                                @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             // check for the existence of the resource
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
@@ -208,15 +184,8 @@ public class Comment extends RegistryRestSuper {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response deleteComment(@QueryParam("path") String resourcePath,
                                   @QueryParam("id") long commentId,
-                                  @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                  @Context Registry registry) {
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
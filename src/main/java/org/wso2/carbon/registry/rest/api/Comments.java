@@ -21,17 +21,17 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Comment;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.rest.api.model.CommentModel;
-import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -51,6 +51,7 @@ public class Comments extends PaginationCalculation<Comment> {
      * @param resourcePath - Path of the resource in the registry.
      * @param start        - Starting page number.
      * @param size         - Number of records to be retrieved
+     * @param cursor       - Cursor of the page returned in the X-Next-Cursor header of the previous page
      * @return array of CommentModel objects, HTTP 200 OK.
      */
     @GET
@@ -61,26 +62,22 @@ public class Comments extends PaginationCalculation<Comment> {
                   response = CommentModel.class,
                   responseContainer = "List")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the comments and returned in body"),
+                            @ApiResponse(code = 304, message = "Not modified since the entity tag or date given"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Given specific comment not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response getComments(@QueryParam("path") String resourcePath,
                                 @QueryParam("start") int start,
                                 @QueryParam("size") int size,
-                                @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                @QueryParam("cursor") String cursor,
+                                @Context Request request,
+                                @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         if (!ValidationUtils.validatePagination(start, size)) {
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
         Comment[] comments = new Comment[0];
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
@@ -92,34 +89,39 @@ public class Comments extends PaginationCalculation<Comment> {
             log.error("Failed to get comments of the resource " + resourcePath, e);
 
         }
-        return getPaginatedResults(comments, start, size, "", "");
+        return getPaginatedResults(comments, start, size, cursor, request);
+    }
+
+    @Override
+    protected Comparator<Comment> getOrdering() {
+        // comment paths end with the sequential comment id eg: /_system/governance/sample.xml;comments:12
+        return Comparator.comparingLong(Comments::getCommentId)
+                .thenComparing(Comment::getCommentPath, Comparator.nullsFirst(String::compareTo));
     }
 
     @Override
-    protected Response getPaginatedResults(Comment[] comments, int start, int size, String sortBy, String sortOrder) {
+    protected String getFingerprint(Comment comment) {
+        return comment.getCommentPath() + "\n" + comment.getAuthorUserName() + "\n" + comment.getDescription();
+    }
 
-        Comment[] paginatedComments;
+    @Override
+    protected Object toEntity(List<Comment> comments) {
         List<CommentModel> commentModels = new ArrayList<CommentModel>();
+        for (Comment comment : comments) {
+            commentModels.add(new CommentModel(comment));
+        }
+        return commentModels.toArray(new CommentModel[commentModels.size()]);
+    }
 
-        if (start == 0 && size == 0) {
-            for (Comment comment : comments) {
-                commentModels.add(new CommentModel(comment));
+    private static long getCommentId(Comment comment) {
+        String commentPath = comment.getCommentPath();
+        if (commentPath != null) {
+            try {
+                return Long.parseLong(commentPath.substring(commentPath.lastIndexOf(':') + 1));
+            } catch (NumberFormatException e) {
+                // fall through, comments without a numeric id are ordered by their path
             }
-            return Response.ok(commentModels.toArray(new CommentModel[commentModels.size()])).build();
-        }
-        if (comments.length < start) {
-            return Response.status(Response.Status.BAD_REQUEST).build();
-        }
-        if (comments.length < size + start) {
-            paginatedComments = new Comment[comments.length - start];
-            System.arraycopy(comments, start, paginatedComments, 0, (comments.length - start));
-        } else {
-            paginatedComments = new Comment[size];
-            System.arraycopy(comments, start, paginatedComments, 0, size);
-        }
-        for (Comment comment : paginatedComments) {
-            commentModels.add(new CommentModel(comment));
         }
-        return Response.ok(commentModels.toArray(new CommentModel[commentModels.size()])).build();
+        return 0;
     }
 }
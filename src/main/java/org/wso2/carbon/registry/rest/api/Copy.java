@@ -22,15 +22,19 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
+import org.wso2.carbon.registry.rest.api.copy.SubtreeCopier;
+import org.wso2.carbon.registry.rest.api.job.Job;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -45,42 +49,63 @@ import javax.ws.rs.core.Response;
 public class Copy extends RegistryRestSuper {
     Log log = LogFactory.getLog(Copy.class);
 
+    public static final String JOB_TYPE = "copy";
+    public static final String PARALLEL_COPY_PROPERTY = "registry.rest.api.copy.parallel";
+
+    private static final boolean parallelCopy = Boolean.parseBoolean(
+            System.getProperty(PARALLEL_COPY_PROPERTY, "false"));
+
     /**
      * This method to copy resource to some target location according to REST verb POST.
+     * Collections are copied by the registry unless the parallel subtree copier is requested or enabled by default.
+     * The parallel copier does not copy comments, ratings and versions.
      *
      * @param resourcePath    - Source path of the resource.
      * @param destinationPath - Destination path of the resource.
-     * @param JWTToken        - Access token.
-     * @return - HTTP 204 No Content if success.
+     * @param async           - If true, the copy runs as a job and its id is returned right away.
+     * @param parallel        - If true, a collection is copied by the parallel subtree copier.
+     * @return - HTTP 204 No Content if success, HTTP 202 Accepted with the job if async.
      */
     @POST
     @ApiOperation(value = "Copy source resource to target path",
                   httpMethod = "POST",
                   notes = "Copy source resource to target path")
-    @ApiResponses(value = { @ApiResponse(code = 204, message = "Resource copied successfully"),
+    @ApiResponses(value = { @ApiResponse(code = 202, message = "Copy job queued"),
+                            @ApiResponse(code = 204, message = "Resource copied successfully"),
+                            @ApiResponse(code = 400, message = "Destination is inside the copied collection"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Specified resource not found"),
-                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+                            @ApiResponse(code = 500, message = "Internal server error occurred"),
+                            @ApiResponse(code = 503, message = "Job queue is full")})
     public Response copyResource(@QueryParam("path") String resourcePath,
                                  @QueryParam("destination") String destinationPath,
-                                 @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                 @QueryParam("async") boolean async,
+                                 @QueryParam("parallel") boolean parallel,
+                                 @Context RestAPIAuthContext authContext,
+                                 @Context Registry registry) {
 
         try {
 
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(resourcePath)) {
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
 
             }
-            registry.copy(resourcePath, destinationPath);
+            final boolean subtree = (parallel || parallelCopy) && resource instanceof Collection;
+            if (subtree && SubtreeCopier.isInside(resourcePath, destinationPath)) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(
+                        "Cannot copy " + resourcePath + " into itself").build();
+            }
+            if (async) {
+                return submitJob(JOB_TYPE, resourcePath, destinationPath, authContext, job -> {
+                    copy(registry, resourcePath, destinationPath, subtree, job, authContext.getTenantId());
+                    if (!subtree) {
+                        job.setProgress(1, 1);
+                    }
+                });
+            }
+            copy(registry, resourcePath, destinationPath, subtree, null, authContext.getTenantId());
             return Response.status(Response.Status.NO_CONTENT).build();
 
         } catch (RegistryException e) {
@@ -89,4 +114,19 @@ public class Copy extends RegistryRestSuper {
         }
 
     }
+
+    private static void copy(Registry registry, String resourcePath, String destinationPath, boolean subtree, Job job,
+                             int tenantId) throws RegistryException {
+        try {
+            if (subtree) {
+                new SubtreeCopier(registry, job).copy(resourcePath, destinationPath);
+            } else {
+                registry.copy(resourcePath, destinationPath);
+            }
+        } finally {
+            // a failed subtree copy leaves the batches committed before it
+            MetaDataCache.invalidate(tenantId, destinationPath);
+            RatingAggregateStore.invalidate(tenantId, destinationPath);
+        }
+    }
 }
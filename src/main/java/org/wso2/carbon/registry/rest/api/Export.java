@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.archive.ArchiveWriter;
+import org.wso2.carbon.registry.rest.api.content.ContentResponses;
+import org.wso2.carbon.registry.rest.api.content.TransferLimiter;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This class exports a collection subtree as a zip archive streamed to the response.
+ */
+@Path("/export")
+@Api(value = "/export",
+     description = "Rest api for exporting collections as archives",
+     produces = "application/zip")
+public class Export extends RegistryRestSuper {
+
+    private static final String ZIP_MEDIA_TYPE = "application/zip";
+
+    private Log log = LogFactory.getLog(Export.class);
+
+    /**
+     * This method streams a zip archive of the collection subtree while walking it. Each resource is written with its
+     * content, and its media type, description, properties and tags are written to a sidecar JSON entry under
+     * .registry/.
+     *
+     * @param resourcePath - Path of the collection to export.
+     * @param depth        - Number of collection levels below the collection to include, all levels if negative.
+     * @param mediaTypes   - Media types of the resources to include, "type/*" matches a whole type; all if not given.
+     * @return - zip archive of the collection, HTTP 200 OK.
+     */
+    @GET
+    @Produces(ZIP_MEDIA_TYPE)
+    @ApiOperation(value = "Export a collection as a zip archive",
+                  httpMethod = "GET",
+                  notes = "Stream a zip archive of the resources, properties and tags of a collection subtree")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "Archive of the collection returned in body"),
+                            @ApiResponse(code = 400, message = "Given path is not a collection"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Given specific collection not found"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred"),
+                            @ApiResponse(code = 503, message = "Too many downloads in progress")})
+    public Response exportCollection(@QueryParam("path") String resourcePath,
+                                     @QueryParam("depth") @DefaultValue("-1") int depth,
+                                     @QueryParam("mediaType") List<String> mediaTypes,
+                                     @Context RestAPIAuthContext authContext,
+                                     @Context Registry registry) {
+        if (!ValidationUtils.validatePath(resourcePath)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            Resource collection = fetchMetaData(registry, resourcePath);
+            if (collection == null) {
+                return resourceNotFound(resourcePath).build();
+            }
+            if (!(collection instanceof Collection)) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(
+                        "Not a collection : " + resourcePath).build();
+            }
+        } catch (RegistryException e) {
+            log.error("Failed to export collection " + resourcePath, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+        }
+        if (TransferLimiter.isSaturated()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(ContentResponses.RETRY_AFTER_HEADER, 1).build();
+        }
+        int pageSize = Integer.getInteger(Artifact.COLLECTION_PAGE_SIZE_PROPERTY,
+                                          Artifact.DEFAULT_COLLECTION_PAGE_SIZE);
+        final ArchiveWriter writer = new ArchiveWriter(registry, authContext.getTenantId(), depth, mediaTypes,
+                                                       pageSize);
+        StreamingOutput archive = outputStream -> {
+            TransferLimiter.begin();
+            try {
+                writer.write(resourcePath, outputStream);
+            } catch (RegistryException e) {
+                // the response is already committed, the client gets a truncated archive
+                log.error("Failed to export collection " + resourcePath, e);
+                throw new IOException("Failed to export collection " + resourcePath, e);
+            } finally {
+                TransferLimiter.end();
+            }
+        };
+        String name = resourcePath.substring(resourcePath.lastIndexOf('/') + 1);
+        return Response.ok(archive).type(ZIP_MEDIA_TYPE)
+                .header(ContentResponses.CONTENT_DISPOSITION_HEADER,
+                        ContentResponses.getContentDisposition((name.isEmpty() ? "root" : name) + ".zip")).build();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api;
+
+import org.apache.commons.codec.binary.Hex;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * SHA-256 hashes of strings, used as cache keys which must not retain the hashed values and as entity tags.
+ */
+public class HashUtils {
+
+    private static final byte[] NO_SALT = new byte[0];
+
+    /**
+     * @param value value to hash
+     * @return hex encoded SHA-256 hash of the UTF-8 bytes of the value
+     */
+    public static String sha256Hex(String value) {
+        return sha256Hex(NO_SALT, value);
+    }
+
+    /**
+     * Hashes the salt followed by the given values, each value terminated by a 0 byte so that different splits of
+     * the same characters hash differently.
+     *
+     * @param salt   bytes hashed before the values, may be empty
+     * @param values values to hash
+     * @return hex encoded SHA-256 hash
+     */
+    public static String sha256Hex(byte[] salt, String... values) {
+        MessageDigest digest = newSha256Digest();
+        digest.update(salt);
+        for (String value : values) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * @param values values to hash
+     * @return hex encoded SHA-256 hash of the values, each terminated by a 0 byte
+     */
+    public static String sha256Hex(List<String> values) {
+        return sha256Hex(NO_SALT, values.toArray(new String[values.size()]));
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is a mandatory algorithm for every JRE
+            throw new IllegalStateException("SHA-256 message digest is not available", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.archive.ArchiveImporter;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
+import org.wso2.carbon.registry.rest.api.exception.InvalidArchiveException;
+import org.wso2.carbon.registry.rest.api.exception.UploadSizeExceededException;
+import org.wso2.carbon.registry.rest.api.model.ImportEntryResultModel;
+import org.wso2.carbon.registry.rest.api.model.ImportResultModel;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * This class imports zip archives into a collection.
+ */
+@Path("/import")
+@Api(value = "/import",
+     description = "Rest api for importing archives into collections",
+     produces = MediaType.APPLICATION_JSON)
+public class Import extends RegistryRestSuper {
+
+    private Log log = LogFactory.getLog(Import.class);
+
+    /**
+     * This method imports the zip archive streamed in the request body into the collection. Archives written by the
+     * export are imported with the media types, descriptions, properties and tags of their resources.
+     *
+     * @param resourcePath - Path of the collection to import into.
+     * @param archive      - zip archive.
+     * @return - JSON ImportResultModel with the result of every entry, HTTP 200 OK.
+     */
+    @POST
+    @Consumes("application/zip")
+    @Produces("application/json")
+    @ApiOperation(value = "Import a zip archive into a collection",
+                  httpMethod = "POST",
+                  notes = "Unpack a zip archive into a collection, writing the resources in parallel batches",
+                  response = ImportResultModel.class)
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "Archive imported, the result of each entry returned"),
+                            @ApiResponse(code = 400, message = "Given path is not a collection or invalid archive"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Given specific collection not found"),
+                            @ApiResponse(code = 413, message = "Archive exceeds the maximum size"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+    public Response importArchive(@QueryParam("path") String resourcePath,
+                                  InputStream archive,
+                                  @Context RestAPIAuthContext authContext,
+                                  @Context Registry registry) {
+        if (!ValidationUtils.validatePath(resourcePath)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            Resource collection = fetchMetaData(registry, resourcePath);
+            if (collection == null) {
+                return resourceNotFound(resourcePath).build();
+            }
+            if (!(collection instanceof Collection)) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(
+                        "Not a collection : " + resourcePath).build();
+            }
+            ArchiveImporter importer = new ArchiveImporter(registry, authContext.getTenantId(),
+                                                           CarbonContext.getThreadLocalCarbonContext()
+                                                                   .getTenantDomain(),
+                                                           authContext.getUserName(), resourcePath);
+            List<ImportEntryResultModel> results = importer.importArchive(archive);
+            return Response.ok(new ImportResultModel(results)).build();
+
+        } catch (UploadSizeExceededException e) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(e.getMessage()).build();
+        } catch (InvalidArchiveException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid archive imported into " + resourcePath, e);
+            }
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (IOException e) {
+            log.error("Failed to import the archive into " + resourcePath, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(
+                    "Failed to import the archive : " + e.getMessage()).build();
+        } catch (RegistryException e) {
+            log.error("Failed to import the archive into " + resourcePath, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        } finally {
+            MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
+        }
+    }
+}
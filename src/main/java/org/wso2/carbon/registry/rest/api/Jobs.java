@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.wso2.carbon.registry.rest.api.job.Job;
+import org.wso2.carbon.registry.rest.api.job.JobManager;
+import org.wso2.carbon.registry.rest.api.model.JobModel;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * This class exposes the status of asynchronous jobs and allows to cancel them.
+ */
+@Path("/jobs")
+@Api(value = "/jobs",
+     description = "Rest api for doing operations on asynchronous jobs",
+     produces = MediaType.APPLICATION_JSON)
+public class Jobs extends RegistryRestSuper {
+
+    /**
+     * This method returns the status and progress of a job.
+     *
+     * @param id - Id of the job.
+     * @return - JSON JobModel, HTTP 200 OK.
+     */
+    @GET
+    @Path("/{id}")
+    @Produces("application/json")
+    @ApiOperation(value = "Get the status of a job",
+                  httpMethod = "GET",
+                  notes = "Fetch the status and progress of an asynchronous job",
+                  response = JobModel.class)
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the job and returned in body"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Job not found")})
+    public Response getJob(@PathParam("id") String id,
+                           @Context RestAPIAuthContext authContext) {
+        Job job = JobManager.get(id, authContext.getTenantId(), authContext.getUserName());
+        if (job == null) {
+            return jobNotFound(id);
+        }
+        return Response.ok(new JobModel(job)).build();
+    }
+
+    /**
+     * This method cancels a queued job, or asks a running job to stop.
+     *
+     * @param id - Id of the job.
+     * @return - JSON JobModel, HTTP 200 OK if the job is cancelled, HTTP 202 Accepted if it is asked to stop.
+     */
+    @DELETE
+    @Path("/{id}")
+    @Produces("application/json")
+    @ApiOperation(value = "Cancel a job",
+                  httpMethod = "DELETE",
+                  notes = "Cancel a queued job or ask a running job to stop",
+                  response = JobModel.class)
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "Job cancelled"),
+                            @ApiResponse(code = 202, message = "Job asked to stop at its next checkpoint"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Job not found"),
+                            @ApiResponse(code = 409, message = "Job already finished")})
+    public Response cancelJob(@PathParam("id") String id,
+                              @Context RestAPIAuthContext authContext) {
+        Job job = JobManager.get(id, authContext.getTenantId(), authContext.getUserName());
+        if (job == null) {
+            return jobNotFound(id);
+        }
+        if (job.isFinished()) {
+            return Response.status(Response.Status.CONFLICT).entity(new JobModel(job)).build();
+        }
+        JobManager.cancel(job);
+        Response.Status status = job.isFinished() ? Response.Status.OK : Response.Status.ACCEPTED;
+        return Response.status(status).entity(new JobModel(job)).build();
+    }
+
+    private static Response jobNotFound(String id) {
+        return Response.status(Response.Status.NOT_FOUND).entity("Job not found : " + id).build();
+    }
+}
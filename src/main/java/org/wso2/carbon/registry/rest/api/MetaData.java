@@ -22,19 +22,19 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
 import org.wso2.carbon.registry.rest.api.model.ResourceModel;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 /**
@@ -61,27 +61,39 @@ public class MetaData extends RegistryRestSuper {
                   notes = "Fetch metadata about a specific resource",
                   response = ResourceModel.class)
     @ApiResponses(value = { @ApiResponse(code = 200, message = "Found metadata for the resource and returned in body"),
+                            @ApiResponse(code = 304, message = "Not modified since the entity tag or date given"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Given specific resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response getMetaData(@QueryParam("path") String resourcePath,
-                                @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                @Context RestAPIAuthContext authContext,
+                                @Context Request request,
+                                @Context Registry registry) {
 
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(resourcePath)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
+            MetaDataCache.Entry entry = MetaDataCache.get(authContext.getTenantId(), authContext.getUserName(),
+                                                          resourcePath);
+            if (entry == null) {
+                long version = MetaDataCache.getVersion();
+                // only the metadata is needed, so the content of the resource is not loaded
+                Resource resource = fetchMetaData(registry, resourcePath);
+                if (resource == null) {
+                    return resourceNotFound(resourcePath).build();
+                }
+                entry = new MetaDataCache.Entry(new ResourceModel(resource), getEntityTag(resource),
+                                                resource.getLastModified());
+                MetaDataCache.put(authContext.getTenantId(), authContext.getUserName(), resourcePath, version, entry);
+            }
+            Response.ResponseBuilder notModified = evaluatePreconditions(request, entry.getEntityTag(),
+                                                                         entry.getLastModified());
+            if (notModified != null) {
+                return notModified.build();
+            }
+            Response.ResponseBuilder builder = Response.ok(entry.getResourceModel()).tag(entry.getEntityTag());
+            if (entry.getLastModified() != null) {
+                builder.lastModified(entry.getLastModified());
             }
-            Resource resource = registry.get(resourcePath);
-            ResourceModel resourceModel = new ResourceModel(resource);
-            return Response.ok(resourceModel).build();
+            return builder.build();
 
         } catch (RegistryException e) {
             log.error("Failed to get meta data of the resource", e);
@@ -20,15 +20,15 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -41,40 +41,44 @@ import javax.ws.rs.core.Response;
      produces = MediaType.APPLICATION_JSON)
 public class Move extends RegistryRestSuper {
 
+    public static final String JOB_TYPE = "move";
+
     /**
      * This method to move the registry resource.
      * @param resourcePath    - Source path of the resource.
      * @param destinationPath - Destination path of the resource.
-     * @param JWTToken        - Access token.
-     * @return                - HTTP 204 No Content
+     * @param async           - If true, the move runs as a job and its id is returned right away.
+     * @return                - HTTP 204 No Content, HTTP 202 Accepted with the job if async.
      */
 
     @POST
     @ApiOperation(value = "Move source resource to target path",
                   httpMethod = "POST",
                   notes = "Move source resource to target path")
-    @ApiResponses(value = { @ApiResponse(code = 204, message = "Resource moved successfully"),
+    @ApiResponses(value = { @ApiResponse(code = 202, message = "Move job queued"),
+                            @ApiResponse(code = 204, message = "Resource moved successfully"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Specified resource not found"),
-                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+                            @ApiResponse(code = 500, message = "Internal server error occurred"),
+                            @ApiResponse(code = 503, message = "Job queue is full")})
     public Response moveResource(@QueryParam("path") String resourcePath,
                                  @QueryParam("destination") String destinationPath,
-                                 @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(carbonContext, JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
-
+                                 @QueryParam("async") boolean async,
+                                 @Context RestAPIAuthContext authContext,
+                                 @Context Registry registry) {
         try {
 
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
 
             }
-            registry.move(resourcePath, destinationPath);
+            if (async) {
+                return submitJob(JOB_TYPE, resourcePath, destinationPath, authContext, job -> {
+                    move(registry, resourcePath, destinationPath, authContext.getTenantId());
+                    job.setProgress(1, 1);
+                });
+            }
+            move(registry, resourcePath, destinationPath, authContext.getTenantId());
             return Response.status(Response.Status.NO_CONTENT).build();
 
         } catch (RegistryException e) {
@@ -83,4 +87,13 @@ public class Move extends RegistryRestSuper {
 
     }
 
+    private static void move(Registry registry, String resourcePath, String destinationPath, int tenantId)
+            throws RegistryException {
+        registry.move(resourcePath, destinationPath);
+        MetaDataCache.invalidate(tenantId, resourcePath);
+        MetaDataCache.invalidate(tenantId, destinationPath);
+        RatingAggregateStore.invalidate(tenantId, resourcePath);
+        RatingAggregateStore.invalidate(tenantId, destinationPath);
+    }
+
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api;
+
+import org.apache.commons.codec.binary.Base64;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of a list result together with the opaque cursor of the next page.
+ * The cursor encodes the offset and the size of the next page, so a client can follow the cursors without keeping
+ * track of the offsets. The page is a view of the requested slice in the order the elements are given, so the
+ * elements must already be in a stable order; sort them where they are produced if the source does not keep one.
+ *
+ * @param <E> type of the elements
+ */
+public class Page<E> {
+
+    private final List<E> elements;
+    private final String nextCursor;
+
+    private Page(List<E> elements, String nextCursor) {
+        this.elements = elements;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Takes the requested page out of the given elements. If both start and size are 0 and there is no cursor all
+     * elements are returned.
+     *
+     * @param elements all elements of the list, in a stable order
+     * @param start    offset of the first element of the page
+     * @param size     maximum number of elements of the page
+     * @param cursor   cursor returned with the previous page, which overrides start and size if given
+     * @return the requested page
+     * @throws IllegalArgumentException if the pagination parameters or the cursor are not valid
+     */
+    public static <E> Page<E> of(E[] elements, int start, int size, String cursor) {
+        if (cursor != null && !cursor.isEmpty()) {
+            int[] position = decodeCursor(cursor);
+            start = position[0];
+            size = position[1];
+        } else if (!ValidationUtils.validatePagination(start, size)) {
+            throw new IllegalArgumentException("Invalid pagination parameters start : " + start + ", size : " + size);
+        }
+        if (start == 0 && size == 0) {
+            return new Page<E>(Arrays.asList(elements), null);
+        }
+        if (start > elements.length) {
+            throw new IllegalArgumentException("Page start " + start + " is out of range");
+        }
+        int end = (int) Math.min((long) start + size, elements.length);
+        List<E> pageElements = end > start ? Arrays.asList(elements).subList(start, end)
+                                           : Collections.<E>emptyList();
+        return new Page<E>(pageElements, end < elements.length ? encodeCursor(end, size) : null);
+    }
+
+    /**
+     * @param start offset of the first element of the page
+     * @param size  maximum number of elements of the page
+     * @return opaque cursor of the page
+     */
+    public static String encodeCursor(int start, int size) {
+        return Base64.encodeBase64URLSafeString((start + ":" + size).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor opaque cursor of a page
+     * @return offset and size of the page
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static int[] decodeCursor(String cursor) {
+        String position = new String(Base64.decodeBase64(cursor), StandardCharsets.UTF_8);
+        int separator = position.indexOf(':');
+        try {
+            int start = Integer.parseInt(position.substring(0, separator));
+            int size = Integer.parseInt(position.substring(separator + 1));
+            if (start < 0 || size <= 0) {
+                throw new IllegalArgumentException("Invalid cursor : " + cursor);
+            }
+            return new int[] { start, size };
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor : " + cursor, e);
+        }
+    }
+
+    public List<E> getElements() {
+        return elements;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
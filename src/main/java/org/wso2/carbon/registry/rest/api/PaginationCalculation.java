@@ -16,11 +16,106 @@
 
 package org.wso2.carbon.registry.rest.api;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 public abstract class PaginationCalculation<E> extends RegistryRestSuper {
 
-    protected abstract Response getPaginatedResults(E[] e, int start, int size, String sortBy, String sortOrder);
+    /**
+     * This method takes the requested page out of the given elements and builds the response. The elements are
+     * sorted with the ordering of {@link #getOrdering()} before the page is taken, so the offsets of the cursors
+     * refer to the same elements between requests. The cursor of the next page, if there is one, is returned in the
+     * X-Next-Cursor header.
+     *
+     * @param e      all elements of the list
+     * @param start  offset of the first element of the page
+     * @param size   maximum number of elements of the page
+     * @param cursor cursor returned with the previous page, overrides start and size
+     * @return HTTP 200 OK with the page, HTTP 400 if the pagination parameters are not valid
+     */
+    protected Response getPaginatedResults(E[] e, int start, int size, String cursor) {
+        return getPaginatedResults(e, start, size, cursor, null);
+    }
 
-}
+    /**
+     * This method builds the page response like {@link #getPaginatedResults(Object[], int, int, String)} and also
+     * evaluates the If-None-Match header of the request against a weak entity tag of the page, if the elements
+     * provide a fingerprint. A matching request gets HTTP 304 Not Modified without the page being serialized.
+     *
+     * @param request request with the conditional headers, or null to skip the evaluation
+     */
+    protected Response getPaginatedResults(E[] e, int start, int size, String cursor, Request request) {
+        Comparator<? super E> ordering = getOrdering();
+        E[] elements = e;
+        if (ordering != null && elements.length > 1) {
+            // the registry may hand out shared arrays, sort a copy
+            elements = Arrays.copyOf(e, e.length);
+            Arrays.sort(elements, ordering);
+        }
+        Page<E> page;
+        try {
+            page = Page.of(elements, start, size, cursor);
+        } catch (IllegalArgumentException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(ex.getMessage()).build();
+        }
+        EntityTag entityTag = request != null ? getEntityTag(page) : null;
+        if (entityTag != null) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+            if (notModified != null) {
+                return notModified.tag(entityTag).build();
+            }
+        }
+        Response.ResponseBuilder builder = Response.ok(toEntity(page.getElements()));
+        if (page.getNextCursor() != null) {
+            builder.header(RestAPIConstants.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        if (entityTag != null) {
+            builder.tag(entityTag);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return stable ordering of the elements, on the same key as their fingerprint if they have one, or null if the
+     *         elements are given in a stable order
+     */
+    protected Comparator<? super E> getOrdering() {
+        return null;
+    }
+
+    /**
+     * @param e element of the list
+     * @return a string which changes whenever the serialized form of the element changes, or null if the elements
+     *         do not support entity tags
+     */
+    protected String getFingerprint(E e) {
+        return null;
+    }
 
+    private EntityTag getEntityTag(Page<E> page) {
+        List<String> fingerprints = new ArrayList<String>();
+        for (E element : page.getElements()) {
+            String fingerprint = getFingerprint(element);
+            if (fingerprint == null) {
+                return null;
+            }
+            fingerprints.add(fingerprint);
+        }
+        if (page.getNextCursor() != null) {
+            fingerprints.add(page.getNextCursor());
+        }
+        return new EntityTag(HashUtils.sha256Hex(fingerprints), true);
+    }
+
+    /**
+     * @param e elements of the page
+     * @return response entity of the page
+     */
+    protected abstract Object toEntity(List<E> e);
+
+}
@@ -22,29 +22,32 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.apache.cxf.jaxrs.ext.PATCH;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
 import org.wso2.carbon.registry.rest.api.model.PropertyModel;
+import org.wso2.carbon.registry.rest.api.model.PropertyOperationModel;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
 
 /**
- * This class handle the properties related to the REST verbs GET,POST and DELETE.
+ * This class handle the properties related to the REST verbs GET,POST and PATCH.
  */
 @Path("/properties")
 @Api(value = "/properties",
@@ -60,6 +63,7 @@ public class Properties extends PaginationCalculation<PropertyModel> {
      * @param resourcePath - Path of the resource in the registry.
      * @param start        - Starting page number.
      * @param size         - Number of records to be retrieved.
+     * @param cursor       - Cursor of the page returned in the X-Next-Cursor header of the previous page.
      * @return - array of properties, HTTP 200 OK.
      */
     @GET
@@ -70,28 +74,37 @@ public class Properties extends PaginationCalculation<PropertyModel> {
                   response = PropertyModel.class,
                   responseContainer = "List")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the properties and returned in body"),
+                            @ApiResponse(code = 304, message = "Not modified since the entity tag or date given"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Given specific resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response getProperties(@QueryParam("path") String resourcePath,
                                   @QueryParam("start") int start,
                                   @QueryParam("size") int size,
-                                  @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                  @QueryParam("cursor") String cursor,
+                                  @Context Request request,
+                                  @Context Registry registry) {
         java.util.Properties properties;
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(resourcePath)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return resourceNotFound(resourcePath).build();
+            }
+            // a property update changes the last modified time, so the resource validators cover the properties
+            Response.ResponseBuilder notModified = evaluatePreconditions(request, resource);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            properties = resource.getProperties();
+            Response response = getPaginatedResults(getPropertyModels(properties), start, size, cursor);
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                return response;
+            }
+            Response.ResponseBuilder builder = Response.fromResponse(response).tag(getEntityTag(resource));
+            if (resource.getLastModified() != null) {
+                builder.lastModified(resource.getLastModified());
             }
-            properties = registry.get(resourcePath).getProperties();
-            return getPaginatedResults(getPropertyModels(properties), start, size, "", "");
+            return builder.build();
 
         } catch (RegistryException e) {
             log.error("Failed to get properties from " + resourcePath, e);
@@ -112,29 +125,29 @@ public class Properties extends PaginationCalculation<PropertyModel> {
                   httpMethod = "POST",
                   notes = "Add properties to a resource")
     @ApiResponses(value = { @ApiResponse(code = 204, message = "Properties added successfully"),
+                            @ApiResponse(code = 400, message = "Reserved property name"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Specified resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response addProperties(@QueryParam("path") String resourcePath,
                                   PropertyModel[] addProperty,
-                                  @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
+                                  @Context RestAPIAuthContext authContext,
+                                  @Context Registry registry) {
+        for (PropertyModel model : addProperty) {
+            if (isReservedProperty(model.getName())) {
+                return reservedProperty(model.getName()).build();
+            }
         }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(resourcePath)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return resourceNotFound(resourcePath).build();
             }
-            Resource resource = registry.get(resourcePath);
             for (PropertyModel model : addProperty) {
                 resource.setProperty(model.getName(), Arrays.asList(model.getValue()));
             }
             registry.put(resourcePath, resource);
+            MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
             return Response.status(Response.Status.NO_CONTENT).build();
 
         } catch (RegistryException e) {
@@ -142,13 +155,75 @@ public class Properties extends PaginationCalculation<PropertyModel> {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
     }
+
+    /**
+     * This method applies an array of set/remove property operations on the specified resource in one update.
+     * Only the metadata and properties of the resource are loaded and written back, the content is not touched.
+     *
+     * @param resourcePath - Resource path
+     * @param operations   - Array of PropertyOperationModel objects
+     * @return - HTTP 204 No Content, HTTP 400 if an operation is not valid.
+     */
+    @PATCH
+    @Consumes("application/json")
+    @ApiOperation(value = "Set and remove properties of a resource",
+                  httpMethod = "PATCH",
+                  notes = "Apply an array of set/remove property operations on a resource")
+    @ApiResponses(value = { @ApiResponse(code = 204, message = "Properties updated successfully"),
+                            @ApiResponse(code = 400, message = "Invalid property operation"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Specified resource not found"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+    public Response updateProperties(@QueryParam("path") String resourcePath,
+                                     PropertyOperationModel[] operations,
+                                     @Context RestAPIAuthContext authContext,
+                                     @Context Registry registry) {
+        if (operations == null) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        for (PropertyOperationModel operation : operations) {
+            if (operation.getName() == null
+                || !(PropertyOperationModel.REMOVE.equals(operation.getOp())
+                     || (PropertyOperationModel.SET.equals(operation.getOp()) && operation.getValue() != null))) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(
+                        "Invalid property operation : " + operation.getOp()).build();
+            }
+            if (isReservedProperty(operation.getName())) {
+                return reservedProperty(operation.getName()).build();
+            }
+        }
+        try {
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return resourceNotFound(resourcePath).build();
+            }
+            for (PropertyOperationModel operation : operations) {
+                if (PropertyOperationModel.SET.equals(operation.getOp())) {
+                    resource.setProperty(operation.getName(), Arrays.asList(operation.getValue()));
+                } else {
+                    resource.removeProperty(operation.getName());
+                }
+            }
+            registry.put(resourcePath, resource);
+            MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
+            return Response.status(Response.Status.NO_CONTENT).build();
+
+        } catch (RegistryException e) {
+            log.error("user is not allowed to update properties of a resource", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+        }
+    }
+
     private PropertyModel[] getPropertyModels(java.util.Properties properties) {
 
         List<PropertyModel> list = new ArrayList<>();
         Enumeration<Object> propName = properties.keys();
         while (propName.hasMoreElements()) {
-            PropertyModel propModel = new PropertyModel();
             String property = propName.nextElement().toString();
+            if (isReservedProperty(property)) {
+                continue;
+            }
+            PropertyModel propModel = new PropertyModel();
             ArrayList<String> propValue = (ArrayList<String>) properties.get(property);
             String[] values = propValue.toArray(new String[propValue.size()]);
             propModel.setName(property);
@@ -159,21 +234,13 @@ public class Properties extends PaginationCalculation<PropertyModel> {
     }
 
     @Override
-    protected Response getPaginatedResults(PropertyModel[] propertyModels, int start, int size,
-                                           String sortBy, String sortOrder) {
-        if (start == 0 && size == 0) {
-            return Response.ok(propertyModels).build();
-        }
-        PropertyModel[] paginatedModels;
-        if (propertyModels.length < size + start) {
-
-            paginatedModels = new PropertyModel[propertyModels.length - start];
-            System.arraycopy(propertyModels, start, paginatedModels, 0, (propertyModels.length - start));
+    protected Comparator<PropertyModel> getOrdering() {
+        // properties are kept in a hash table, sort them by name to keep the pages stable
+        return Comparator.comparing(PropertyModel::getName);
+    }
 
-        } else {
-            paginatedModels = new PropertyModel[size];
-            System.arraycopy(propertyModels, start, paginatedModels, 0, size);
-        }
-        return Response.ok(paginatedModels).build();
+    @Override
+    protected Object toEntity(List<PropertyModel> propertyModels) {
+        return propertyModels.toArray(new PropertyModel[propertyModels.size()]);
     }
 }
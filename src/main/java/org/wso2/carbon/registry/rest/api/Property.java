@@ -22,21 +22,20 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
 import org.wso2.carbon.registry.rest.api.model.PropertyModel;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
@@ -74,23 +73,16 @@ public class Property extends RegistryRestSuper {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response getProperty(@QueryParam("path") String resourcePath,
                                 @QueryParam("name") String propertyName,
-                                @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                @Context Registry registry) {
         Response response;
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(resourcePath)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return resourceNotFound(resourcePath).build();
             }
-            Resource resource = registry.get(resourcePath);
             java.util.Properties prop = resource.getProperties();
-            if (prop.containsKey(propertyName)) {
+            // reserved properties are maintained by the API and not exposed to clients
+            if (prop.containsKey(propertyName) && !isReservedProperty(propertyName)) {
                 return getSingleProperty(propertyName, prop);
             } else {
                 response = Response.status(Response.Status.NOT_FOUND).build();
@@ -117,28 +109,26 @@ public class Property extends RegistryRestSuper {
                   httpMethod = "POST",
                   notes = "Add a property to a resource")
     @ApiResponses(value = { @ApiResponse(code = 204, message = "property added successfully"),
+                            @ApiResponse(code = 400, message = "Reserved property name"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Specified resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response addProperty(@QueryParam("path") String resourcePath,
                                 @QueryParam("name") String name,
                                 @QueryParam("value") String value,
-                                @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
+                                @Context RestAPIAuthContext authContext,
+                                @Context Registry registry) {
+        if (isReservedProperty(name)) {
+            return reservedProperty(name).build();
         }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(resourcePath)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return resourceNotFound(resourcePath).build();
             }
-            Resource resource = registry.get(resourcePath);
             resource.setProperty(name, value);
             registry.put(resourcePath, resource);
+            MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
 
             if (log.isDebugEnabled()) {
                 log.debug("specified property added for the given resource");
@@ -163,27 +153,25 @@ public class Property extends RegistryRestSuper {
                   httpMethod = "DELETE",
                   notes = "Delete a property")
     @ApiResponses(value = { @ApiResponse(code = 204, message = "property deleted successfully"),
+                            @ApiResponse(code = 400, message = "Reserved property name"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Specified resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response deleteProperty(@QueryParam("path") String resourcePath,
                                    @QueryParam("name") String name,
-                                   @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
+                                   @Context RestAPIAuthContext authContext,
+                                   @Context Registry registry) {
+        if (isReservedProperty(name)) {
+            return reservedProperty(name).build();
         }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(resourcePath)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
+            Resource resource = fetchMetaData(registry, resourcePath);
+            if (resource == null) {
+                return resourceNotFound(resourcePath).build();
             }
-            Resource resource = registry.get(resourcePath);
             resource.removeProperty(name);
             registry.put(resourcePath, resource);
+            MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
             return Response.status(Response.Status.NO_CONTENT).build();
         } catch (RegistryException e) {
             log.error("user is not allowed to delete properties on a resource", e);
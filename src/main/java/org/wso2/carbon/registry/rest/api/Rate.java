@@ -22,12 +22,12 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -43,7 +43,8 @@ public class Rate extends RegistryRestSuper {
     private Log log = LogFactory.getLog(Rate.class);
 
     /**
-     * This method put a rating to a resource
+     * This method put a rating to a resource.
+     * The average rating is read from the in-memory rating aggregate, which is updated with the change.
      *
      * @param resourcePath - path of the resource in the registry space
      * @param value        - user's rating
@@ -61,20 +62,16 @@ public class Rate extends RegistryRestSuper {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response rateResource(@QueryParam("path") String resourcePath,
                                  @QueryParam("value") int value,
-                                 @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                 @Context RestAPIAuthContext authContext,
+                                 @Context Registry registry) {
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
-            registry.rateResource(resourcePath, value);
-            float averageRating = registry.getAverageRating(resourcePath);
+            RatingAggregateStore.rate(registry, authContext.getTenantId(), authContext.getUserName(), resourcePath,
+                                      value);
+            float averageRating = RatingAggregateStore.getAverageRating(registry, authContext.getTenantId(),
+                                                                        resourcePath);
 
             return Response.ok(averageRating).build();
         } catch (RegistryException e) {
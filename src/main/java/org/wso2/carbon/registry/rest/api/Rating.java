@@ -21,18 +21,17 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
 import org.wso2.carbon.registry.rest.api.model.RatingModel;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -65,23 +64,17 @@ public class Rating extends RegistryRestSuper {
                             @ApiResponse(code = 404, message = "Given specific resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response getRating(@QueryParam("path") String resourcePath,
-                              @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                              @Context RestAPIAuthContext authContext,
+                              @Context Registry registry) {
 
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         Response response;
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
             }
             int userRating = registry.getRating(resourcePath, authContext.getUserName());
-            float avgRating = registry.getAverageRating(resourcePath);
+            float avgRating = RatingAggregateStore.getAverageRating(registry, authContext.getTenantId(), resourcePath);
             RatingModel result = new RatingModel(userRating, avgRating);
             return Response.ok().entity(result).build();
 
@@ -107,21 +100,15 @@ public class Rating extends RegistryRestSuper {
                             @ApiResponse(code = 404, message = "Specified resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response removeRating(@QueryParam("path") String resourcePath,
-                                 @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                 @Context RestAPIAuthContext authContext,
+                                 @Context Registry registry) {
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
             }
             // set the user specific rating to 0
-            registry.rateResource(resourcePath, 0);
+            RatingAggregateStore.rate(registry, authContext.getTenantId(), authContext.getUserName(), resourcePath, 0);
             return Response.status(Response.Status.NO_CONTENT).build();
         } catch (RegistryException e) {
             log.error("Failed to remove rating on  resource " + resourcePath, e);
@@ -15,46 +15,179 @@
  */
 package org.wso2.carbon.registry.rest.api;
 
+import java.net.URI;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.CarbonContext;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
-import org.wso2.carbon.registry.core.service.RegistryService;
-import org.wso2.carbon.registry.core.session.UserRegistry;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.rest.api.cache.UserRegistryCache;
+import org.wso2.carbon.registry.rest.api.content.BlobStore;
+import org.wso2.carbon.registry.rest.api.job.Job;
+import org.wso2.carbon.registry.rest.api.job.JobManager;
+import org.wso2.carbon.registry.rest.api.model.JobModel;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
 
 public class RegistryRestSuper {
 
-    private UserRegistry userRegistry = null;
-    private int pageSize = 10;
-    private int begin = 0;
-    private int end = 0;
-    private String tenantID = null;
-    private Log log = LogFactory.getLog(RegistryRestSuper.class);
+    private static Log log = LogFactory.getLog(RegistryRestSuper.class);
 
     /**
      * This method creates the registry instance belongs to the particular user
-     * to isolate from other users among the tenant.
+     * to isolate from other users among the tenant. Instances are reused from the UserRegistryCache.
+     * It is called once per request by the RestApiAuthContextFilter, which makes the instance
+     * injectable into the resource methods.
      *
      * @param username username of the authorized enduser belongs to the access token
      * @param tenantID tenantID of the authorized enduser belongs to the access token
      * @return user registry instance
      */
-    protected Registry getUserRegistry(String username, int tenantID) {
+    public static Registry getUserRegistry(String username, int tenantID) {
         Registry userRegistry = null;
-        RegistryService registryService = (RegistryService) PrivilegedCarbonContext.getThreadLocalCarbonContext().
-                getOSGiService(RegistryService.class);
         try {
-            userRegistry = registryService.getUserRegistry(username, tenantID);
+            userRegistry = UserRegistryCache.getUserRegistry(username, tenantID);
         } catch (RegistryException e) {
             log.error("unable to create user registry", e);
         }
         return userRegistry;
     }
 
+    /**
+     * This method fetches the resource at the given path with a single registry call.
+     * Use it instead of a resourceExists() check followed by a get(), which costs two round trips.
+     *
+     * @param registry user registry
+     * @param path     path of the resource
+     * @return the resource, or null if there is no resource at the given path
+     * @throws RegistryException if the resource cannot be read
+     */
+    protected static Resource fetchResource(Registry registry, String path) throws RegistryException {
+        try {
+            return registry.get(path);
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * This method fetches only the metadata and the properties of the resource at the given path, the content is not
+     * loaded. A resource fetched this way can be put back to update its properties without rewriting its content.
+     *
+     * @param registry user registry
+     * @param path     path of the resource
+     * @return the resource without content, or null if there is no resource at the given path
+     * @throws RegistryException if the resource cannot be read
+     */
+    protected static Resource fetchMetaData(Registry registry, String path) throws RegistryException {
+        try {
+            return registry.getMetaData(path);
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param path path of the resource which was not found
+     * @return HTTP 404 Not Found response builder with the resource not found message
+     */
+    protected static Response.ResponseBuilder resourceNotFound(String path) {
+        return Response.status(Response.Status.NOT_FOUND).entity(RestAPIConstants.RESOURCE_NOT_FOUND + path);
+    }
+
+    /**
+     * @param name property name
+     * @return true if the property is maintained by the REST API itself, such as the blob store reference, and must
+     * not be changed by clients
+     */
+    protected static boolean isReservedProperty(String name) {
+        return name != null && name.startsWith(BlobStore.BLOB_PROPERTY_PREFIX);
+    }
+
+    /**
+     * @param name reserved property name
+     * @return HTTP 400 Bad Request response builder with the reserved property message
+     */
+    protected static Response.ResponseBuilder reservedProperty(String name) {
+        return Response.status(Response.Status.BAD_REQUEST).entity("Reserved property : " + name);
+    }
+
+    /**
+     * This method queues a long running operation as an asynchronous job of the current user.
+     *
+     * @param type        type of the operation
+     * @param source      source path of the operation
+     * @param destination destination path of the operation, may be null
+     * @param authContext auth context of the user
+     * @param task        the operation
+     * @return HTTP 202 Accepted response with the job and its location, or HTTP 503 if the job queue is full
+     */
+    protected static Response submitJob(String type, String source, String destination,
+                                        RestAPIAuthContext authContext, JobManager.JobTask task) {
+        try {
+            Job job = JobManager.submit(type, authContext.getTenantId(),
+                                        CarbonContext.getThreadLocalCarbonContext().getTenantDomain(),
+                                        authContext.getUserName(), source, destination, task);
+            return Response.accepted(new JobModel(job)).location(URI.create("jobs/" + job.getId())).build();
+        } catch (RejectedExecutionException e) {
+            log.warn("Job queue is full, " + type + " of " + source + " rejected");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity("Job queue is full").build();
+        }
+    }
+
+    /**
+     * This method builds the strong entity tag of the resource from its UUID and last modified time, which changes
+     * whenever the content, the properties or the metadata of the resource change.
+     *
+     * @param resource resource, only the metadata is used
+     * @return entity tag of the resource
+     */
+    protected static EntityTag getEntityTag(Resource resource) {
+        String id = resource.getUUID() != null ? resource.getUUID() : resource.getPath();
+        long lastModified = resource.getLastModified() != null ? resource.getLastModified().getTime() : 0;
+        return new EntityTag(id + "-" + lastModified);
+    }
+
+    /**
+     * This method evaluates the If-None-Match and If-Modified-Since (and If-Match / If-Unmodified-Since) headers of
+     * the request against the metadata of the resource. It should be called before the content is loaded.
+     *
+     * @param request  request with the conditional headers
+     * @param resource resource, only the metadata is used
+     * @return the response builder of a 304 or 412 response if a precondition decides the response, otherwise null
+     */
+    protected static Response.ResponseBuilder evaluatePreconditions(Request request, Resource resource) {
+        return evaluatePreconditions(request, getEntityTag(resource), resource.getLastModified());
+    }
+
+    /**
+     * @param request      request with the conditional headers
+     * @param entityTag    current entity tag of the requested entity
+     * @param lastModified last modified time of the requested entity, may be null
+     * @return the response builder of a 304 or 412 response if a precondition decides the response, otherwise null
+     */
+    protected static Response.ResponseBuilder evaluatePreconditions(Request request, EntityTag entityTag,
+                                                                    Date lastModified) {
+        Response.ResponseBuilder builder = lastModified != null
+                                           ? request.evaluatePreconditions(lastModified, entityTag)
+                                           : request.evaluatePreconditions(entityTag);
+        if (builder != null) {
+            builder.tag(entityTag);
+            if (lastModified != null) {
+                builder.lastModified(lastModified);
+            }
+        }
+        return builder;
+    }
+
     /**
      * This method calculates the string literal of the requested path of the
      * resource.
@@ -80,39 +213,8 @@ public class RegistryRestSuper {
         return resourcePath;
     }
 
-    protected UserRegistry getUserRegistry() {
-        return userRegistry;
-    }
-
-    protected void setUserRegistry(UserRegistry userRegistry) {
-        this.userRegistry = userRegistry;
-    }
-
-    protected int getPageSize() {
-        return pageSize;
-    }
-
-    protected void setPageSize(int pageSize) {
-        this.pageSize = pageSize;
-    }
-
-    protected int getBegin() {
-        return begin;
-    }
-
-    protected void setBegin(int begin) {
-        this.begin = begin;
-    }
-
-    protected int getEnd() {
-        return end;
-    }
-
-    protected void setEnd(int end) {
-        this.end = end;
-    }
-
     protected String getTenantID() {
+        String tenantID = null;
         try {
             int x = CarbonContext.getThreadLocalCarbonContext().getTenantId();
             tenantID = String.valueOf(x);
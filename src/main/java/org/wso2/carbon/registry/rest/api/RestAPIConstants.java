@@ -21,4 +21,7 @@ public class RestAPIConstants {
 
     public static final String RESOURCE_NOT_FOUND = "Resource not found : ";
     public static final String TYPE_JSON = "application/json";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String UPLOAD_OFFSET_HEADER = "X-Upload-Offset";
+    public static final String CHILD_COUNT_HEADER = "X-Child-Count";
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceRegistration;
+import org.wso2.carbon.registry.rest.api.archive.ArchiveImporter;
+import org.wso2.carbon.registry.rest.api.cache.CacheSettings;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
+import org.wso2.carbon.registry.rest.api.copy.SubtreeCopier;
+import org.wso2.carbon.registry.rest.api.handler.CredentialCacheListener;
+import org.wso2.carbon.registry.rest.api.handler.TenantCacheObserver;
+import org.wso2.carbon.registry.rest.api.job.JobManager;
+import org.wso2.carbon.user.core.listener.UserOperationEventListener;
+import org.wso2.carbon.utils.Axis2ConfigurationContextObserver;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages what the API holds beyond a single request over the life of the webapp.
+ * On deployment the listeners which keep the caches of the API in line with tenant events are registered as OSGi
+ * services. On undeployment they are unregistered and the static worker pools of the API are shut down, so a
+ * redeployment does not leave their threads running and pinning the classloader of the old webapp. The caches are
+ * emptied as well, which deletes the spool files of open uploads.
+ */
+public class RestApiContextListener implements ServletContextListener {
+
+    private static Log log = LogFactory.getLog(RestApiContextListener.class);
+
+    private final List<ServiceRegistration<?>> registrations = new ArrayList<ServiceRegistration<?>>();
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        RatingAggregateStore.registerRatingsQueries();
+        // the webapp is not a bundle, the services are registered through the bundle providing their interface
+        Bundle bundle = FrameworkUtil.getBundle(Axis2ConfigurationContextObserver.class);
+        BundleContext bundleContext = bundle != null ? bundle.getBundleContext() : null;
+        if (bundleContext == null) {
+            log.warn("OSGi framework is not available, cached tenants and credentials are only refreshed when they "
+                     + "expire");
+            return;
+        }
+        registrations.add(bundleContext.registerService(Axis2ConfigurationContextObserver.class.getName(),
+                                                        new TenantCacheObserver(), null));
+        registrations.add(bundleContext.registerService(UserOperationEventListener.class.getName(),
+                                                        new CredentialCacheListener(), null));
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        for (ServiceRegistration<?> registration : registrations) {
+            try {
+                registration.unregister();
+            } catch (IllegalStateException e) {
+                // already unregistered when the framework is shutting down
+            }
+        }
+        registrations.clear();
+        ArchiveImporter.shutdown();
+        JobManager.shutdown();
+        SubtreeCopier.shutdown();
+        CacheSettings.invalidateAll();
+    }
+}
@@ -22,16 +22,22 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
+import org.wso2.carbon.registry.rest.api.content.ContentResponses;
+import org.wso2.carbon.registry.rest.api.content.ResourceContent;
 import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.*;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
 
 /**
  * This class is to handle the resource revision related to REST verbs GET,POST and DELETE.
@@ -44,11 +50,15 @@ import javax.ws.rs.core.Response;
 public class Revision extends RegistryRestSuper {
 
     private Log log = LogFactory.getLog(Revision.class);
+    public static final String IMMUTABLE_DIRECTIVE = "immutable";
+    private static final int REVISION_MAX_AGE = 365 * 24 * 60 * 60;
 
     /**
      * This method get a revision on the requested resource(using revision id).
      *
-     * @param path - Path of the resource in the registry
+     * @param path    - Path of the resource in the registry
+     * @param range   - Range header, the requested byte ranges of the revision content
+     * @param ifRange - If-Range header, the ranges are served only if the revision is unchanged since then
      * @return Response - resource
      */
     @GET
@@ -57,36 +67,50 @@ public class Revision extends RegistryRestSuper {
                   httpMethod = "GET",
                   notes = "Fetch content of a resource")//TODO add return type based on resource or collection
     @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the revisioned resource content and returned in body"),
+                            @ApiResponse(code = 206, message = "Requested ranges of the revision content returned in body"),
+                            @ApiResponse(code = 304, message = "Revision not modified"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Given specific resource not found"),
-                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+                            @ApiResponse(code = 416, message = "Requested range not satisfiable"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred"),
+                            @ApiResponse(code = 503, message = "Too many downloads in progress")})
     public Response getRevision(@QueryParam("path") String path,
                                 @QueryParam("id") long revisionId,
-                                @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
+                                @HeaderParam("Range") String range,
+                                @HeaderParam("If-Range") String ifRange,
+                                @HeaderParam("Accept-Encoding") String acceptEncoding,
+                                @Context RestAPIAuthContext authContext,
+                                @Context Request request,
+                                @Context Registry registry) {
 
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
-            if (!registry.resourceExists(path)) {
-                return Response.status(Response.Status.NOT_FOUND).entity(
-                        RestAPIConstants.RESOURCE_NOT_FOUND + path).build();
-            }
+            // the versioned path is fetched directly, a missing resource or revision surfaces as not found
             String revisionPath = getRevisionPath(path, revisionId);
-            Resource resource = registry.get(revisionPath);
+            Resource resource = fetchMetaData(registry, revisionPath);
+            if (resource == null) {
+                return resourceNotFound(path).build();
+            }
             if (resource instanceof Collection) {
                 //If it is a collection , return the versioned paths.
-                Collection versionCollection = (Collection) resource;
+                Collection versionCollection = (Collection) registry.get(revisionPath);
                 String[] versionPaths = versionCollection.getChildren();
                 return Response.ok().entity(versionPaths).type("application/json").build();
             }
-            return Response.ok().entity(resource.getContent()).type(resource.getMediaType()).build();
-
-        } catch (RegistryException e) {
+            // a revision never changes, so its entity tag only depends on the revision id
+            EntityTag entityTag = getRevisionEntityTag(resource, revisionId);
+            Response.ResponseBuilder notModified = evaluatePreconditions(request, entityTag,
+                                                                         resource.getLastModified());
+            if (notModified != null) {
+                return notModified.cacheControl(getRevisionCacheControl()).build();
+            }
+            resource = registry.get(revisionPath);
+            // the content is streamed from the registry, the revision is not loaded on the heap as a whole
+            String fileName = path.substring(path.lastIndexOf('/') + 1);
+            ResourceContent content = new ResourceContent(resource, authContext.getTenantId());
+            return ContentResponses.build(content, range, ifRange, fileName, entityTag, acceptEncoding)
+                    .cacheControl(getRevisionCacheControl()).build();
+
+        } catch (RegistryException | IOException e) {
             log.error("Failed to get version " + revisionId + "of resource " + path, e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
@@ -107,20 +131,15 @@ public class Revision extends RegistryRestSuper {
                             @ApiResponse(code = 404, message = "Specified resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response createRevision(@QueryParam("path") String path,
-                                   @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                                   @Context RestAPIAuthContext authContext,
+                                   @Context Registry registry) {
 
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(path)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(RestAPIConstants.RESOURCE_NOT_FOUND).build();
             }
             registry.createVersion(path);
+            MetaDataCache.invalidate(authContext.getTenantId(), path);
             return Response.status(Response.Status.NO_CONTENT).build();
 
         } catch (RegistryException e) {
@@ -145,22 +164,17 @@ public class Revision extends RegistryRestSuper {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response deleteRevision(@QueryParam("path") String path,
                                    @QueryParam("id") long versionID,
-                                   @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
+                                   @Context RestAPIAuthContext authContext,
+                                   @Context Registry registry) {
 
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         String versionPath = getRevisionPath(path, versionID);
 
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(versionPath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(RestAPIConstants.RESOURCE_NOT_FOUND).build();
             }
             registry.removeVersionHistory(path, versionID);
+            MetaDataCache.invalidate(authContext.getTenantId(), path);
             return Response.status(Response.Status.NO_CONTENT).build();
 
         } catch (RegistryException e) {
@@ -169,6 +183,22 @@ public class Revision extends RegistryRestSuper {
         }
     }
 
+    private EntityTag getRevisionEntityTag(Resource resource, long revisionId) {
+        String id = resource.getUUID() != null ? resource.getUUID() : resource.getPath();
+        return new EntityTag(id + ";version:" + revisionId);
+    }
+
+    /**
+     * Revisions are immutable, clients may keep them for a year without revalidating.
+     */
+    private CacheControl getRevisionCacheControl() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.setMaxAge(REVISION_MAX_AGE);
+        cacheControl.getCacheExtension().put(IMMUTABLE_DIRECTIVE, null);
+        return cacheControl;
+    }
+
     private String getRevisionPath(String resourcePath, long versionID) {
         /* /_system/governance/test4;version:3 */
         return resourcePath + ";version:" + versionID;
@@ -22,18 +22,16 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
-import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
 
 /**
  * This class is to handle the revisions of the given resource according to the REST verb GET.
@@ -52,6 +50,7 @@ public class Revisions extends PaginationCalculation<String> {
      * @param path  - Path of the resource in the registry
      * @param start - Starting page number
      * @param size  - Number of records to be retrieved
+     * @param cursor - Cursor of the page returned in the X-Next-Cursor header of the previous page
      * @return array of version IDs
      */
     @GET
@@ -68,14 +67,8 @@ public class Revisions extends PaginationCalculation<String> {
     public Response getRevisions(@QueryParam("path") String path,
                                  @QueryParam("start") int start,
                                  @QueryParam("size") int size,
-                                 @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                 @QueryParam("cursor") String cursor,
+                                 @Context Registry registry) {
 
         if (!ValidationUtils.validatePagination(start, size)) {
             return Response.status(Response.Status.BAD_REQUEST).build();
@@ -83,13 +76,12 @@ public class Revisions extends PaginationCalculation<String> {
         String[] result;
         try {
 
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(path)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + RestAPIConstants.RESOURCE_NOT_FOUND).build();
             }
             result = registry.getVersions(path);
-            return getPaginatedResults(result, start, size, "", "");
+            return getPaginatedResults(result, start, size, cursor);
 
         } catch (RegistryException e) {
             log.error("User does not have required permission to access the resource", e);
@@ -98,19 +90,7 @@ public class Revisions extends PaginationCalculation<String> {
     }
 
     @Override
-    protected Response getPaginatedResults(String[] paths, int start, int size, String sortBy, String sortOrder) {
-
-        String[] paginatedPaths;
-        if (start == 0 && size == 0) {
-            return Response.status(Response.Status.OK).entity(paths).build();
-        }
-        if (paths.length < size + start) {
-            paginatedPaths = new String[paths.length - start];
-            System.arraycopy(paths, start, paginatedPaths, 0, paths.length - start);
-        } else {
-            paginatedPaths = new String[size];
-            System.arraycopy(paths, start, paginatedPaths, 0, size);
-        }
-        return Response.status(Response.Status.OK).entity(paginatedPaths).build();
+    protected Object toEntity(List<String> paths) {
+        return paths.toArray(new String[paths.size()]);
     }
 }
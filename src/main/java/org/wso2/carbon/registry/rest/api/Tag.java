@@ -23,24 +23,22 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.TaggedResourcePath;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.rest.api.model.TaggedResourcePathModel;
-import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -62,6 +60,7 @@ public class Tag extends PaginationCalculation<TaggedResourcePath> {
      * @param tagName - Name of the tag
      * @param start   - Page start number
      * @param size    - Number of records to be fetched
+     * @param cursor  - Cursor of the page returned in the X-Next-Cursor header of the previous page
      * @return JSON object eg: {"path":[<array of resource paths tagged by the
      *         tagname>]}protected HTTP 200 OK.
      */
@@ -78,18 +77,12 @@ public class Tag extends PaginationCalculation<TaggedResourcePath> {
     public Response getTaggedResources(@QueryParam("name") String tagName,
                                        @QueryParam("start") int start,
                                        @QueryParam("size") int size,
-                                       @HeaderParam("X-JWT-Assertion") String JWTToken) {
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                                       @QueryParam("cursor") String cursor,
+                                       @Context Registry registry) {
         try {
 
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             TaggedResourcePath[] resourcePaths = registry.getResourcePathsWithTag(tagName);
-            return getPaginatedResults(resourcePaths, start, size, "", "");
+            return getPaginatedResults(resourcePaths, start, size, cursor);
 
         } catch (RegistryException e) {
             log.error("Failed to get resource path having tag : " + tagName, e);
@@ -116,17 +109,9 @@ public class Tag extends PaginationCalculation<TaggedResourcePath> {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response addTag(@QueryParam("path") String resourcePath,
                            @QueryParam("name") String tagText,
-                           @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+                           @Context Registry registry) {
 
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
@@ -158,18 +143,11 @@ public class Tag extends PaginationCalculation<TaggedResourcePath> {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response deleteTag(@QueryParam("path") String resourcePath,
                               @QueryParam("name") String tagName,
-                              @HeaderParam("X-JWT-Assertion") String JWTToken) {
-
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
+                              @Context Registry registry) {
 
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
 
             boolean tagFound = false;
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(
                         RestAPIConstants.RESOURCE_NOT_FOUND + resourcePath).build();
@@ -199,35 +177,18 @@ public class Tag extends PaginationCalculation<TaggedResourcePath> {
     }
 
     @Override
-    protected Response getPaginatedResults(TaggedResourcePath[] taggedResourcePaths, int start, int size,
-                                           String sortBy, String sortOrder) {
+    protected Comparator<TaggedResourcePath> getOrdering() {
+        return Comparator.comparing(TaggedResourcePath::getResourcePath,
+                                    Comparator.nullsFirst(String::compareTo));
+    }
 
+    @Override
+    protected Object toEntity(List<TaggedResourcePath> taggedResourcePaths) {
         List<TaggedResourcePathModel> resourcePathModelList = new ArrayList<TaggedResourcePathModel>();
-        TaggedResourcePath[] paginatedResourcePaths;
-
-        if (size == 0 && start == 0) {
-            for (TaggedResourcePath resourcePath : taggedResourcePaths) {
-                resourcePathModelList.add(new TaggedResourcePathModel(resourcePath));
-            }
-            return Response.ok(resourcePathModelList.toArray(
-                    new TaggedResourcePathModel[resourcePathModelList.size()])).build();
-        }
-        if (taggedResourcePaths.length < start) {
-            return Response.status(Response.Status.BAD_REQUEST).build();
-        }
-        if (taggedResourcePaths.length < size + start) {
-            paginatedResourcePaths = new TaggedResourcePath[taggedResourcePaths.length - start];
-            System.arraycopy(taggedResourcePaths, start, paginatedResourcePaths, 0, taggedResourcePaths.length - start);
-
-        } else {
-            paginatedResourcePaths = new TaggedResourcePath[size];
-            System.arraycopy(taggedResourcePaths, start, paginatedResourcePaths, 0, size);
-        }
-        for (TaggedResourcePath resourcePath : paginatedResourcePaths) {
+        for (TaggedResourcePath resourcePath : taggedResourcePaths) {
             resourcePathModelList.add(new TaggedResourcePathModel(resourcePath));
         }
-        return Response.ok(resourcePathModelList.toArray(
-                new TaggedResourcePathModel[resourcePathModelList.size()])).build();
+        return resourcePathModelList.toArray(new TaggedResourcePathModel[resourcePathModelList.size()]);
     }
 }
 
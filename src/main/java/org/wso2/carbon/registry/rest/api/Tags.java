@@ -22,7 +22,6 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.RegistryConstants;
@@ -30,19 +29,19 @@ import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.Tag;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.rest.api.model.TagModel;
-import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
-import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -61,6 +60,7 @@ public class Tags extends PaginationCalculation<Tag> {
      * @param resourcePath resource path
      * @param start        starting page number
      * @param size         number of tags to be fetched
+     * @param cursor       cursor of the page returned in the X-Next-Cursor header of the previous page
      * @return JSON tag model eg: {"tags":[<array of tag names]}
      */
     @GET
@@ -70,27 +70,23 @@ public class Tags extends PaginationCalculation<Tag> {
                   notes = "Fetch all tags on a resource",
                   response = TagModel.class)
     @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the tags and returned in body"),
+                            @ApiResponse(code = 304, message = "Not modified since the entity tag or date given"),
                             @ApiResponse(code = 401, message = "Invalid credentials provided"),
                             @ApiResponse(code = 404, message = "Given specific resource not found"),
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response getTags(@QueryParam("path") String resourcePath,
                             @QueryParam("start") int start,
                             @QueryParam("size") int size,
-                            @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                            @QueryParam("cursor") String cursor,
+                            @Context Request request,
+                            @Context Registry registry) {
 
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         if (resourcePath == null || "".equals(resourcePath)) {
             //Return tagsCloud, therefore no need pagination.
-            return getAllTags();
+            return getAllTags(registry);
         }
         org.wso2.carbon.registry.core.Tag[] tags = new org.wso2.carbon.registry.core.Tag[0];
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(RestAPIConstants.RESOURCE_NOT_FOUND).build();
             }
@@ -102,7 +98,7 @@ public class Tags extends PaginationCalculation<Tag> {
             Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
         //Need paginate, because it return tags of a resource
-        return getPaginatedResults(tags, start, size, "", "");
+        return getPaginatedResults(tags, start, size, cursor, request);
 
     }
 
@@ -125,16 +121,9 @@ public class Tags extends PaginationCalculation<Tag> {
                             @ApiResponse(code = 500, message = "Internal server error occurred")})
     public Response addTags(@QueryParam("path") String resourcePath,
                             TagModel tags,
-                            @HeaderParam("X-JWT-Assertion") String JWTToken) {
+                            @Context Registry registry) {
 
-        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext
-                (PrivilegedCarbonContext.getThreadLocalCarbonContext(), JWTToken);
-
-        if (!authContext.isAuthorized()) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
         try {
-            Registry registry = getUserRegistry(authContext.getUserName(), authContext.getTenantId());
             if (!registry.resourceExists(resourcePath)) {
                 return Response.status(Response.Status.NOT_FOUND).entity(RestAPIConstants.RESOURCE_NOT_FOUND).build();
             }
@@ -154,18 +143,17 @@ public class Tags extends PaginationCalculation<Tag> {
     /**
      * get all the tags in the registry space.
      */
-    private Response getAllTags() {
-        if (setTagSearchQuery()) {
+    private Response getAllTags(Registry registry) {
+        if (setTagSearchQuery(registry)) {
             Collection collection;
             HashMap<String, String[]> tagCloud = new HashMap<String, String[]>();
             try {
                 // execute the custom query
                 collection =
-                        super.getUserRegistry()
-                                .executeQuery(RegistryConstants.CONFIG_REGISTRY_BASE_PATH +
-                                        RegistryConstants.QUERIES_COLLECTION_PATH +
-                                        "/tags",
-                                        Collections.<String, String>emptyMap());
+                        registry.executeQuery(RegistryConstants.CONFIG_REGISTRY_BASE_PATH +
+                                RegistryConstants.QUERIES_COLLECTION_PATH +
+                                "/tags",
+                                Collections.<String, String>emptyMap());
                 // create the tagList, extract the tag name from collection and
                 // add it to tagList if
                 // does not exist already
@@ -200,7 +188,7 @@ public class Tags extends PaginationCalculation<Tag> {
      * custom query for all the tags search is set as a resource and saved at
      * the config registry.space
      */
-    private boolean setTagSearchQuery() {
+    private boolean setTagSearchQuery(Registry registry) {
         if (log.isDebugEnabled()) {
             log.debug("tag search customs query is set");
         }
@@ -208,15 +196,15 @@ public class Tags extends PaginationCalculation<Tag> {
                 RegistryConstants.CONFIG_REGISTRY_BASE_PATH +
                         RegistryConstants.QUERIES_COLLECTION_PATH + "/tags";
         try {
-            if (!super.getUserRegistry().resourceExists(tagsQueryPath)) {
+            if (!registry.resourceExists(tagsQueryPath)) {
                 // set-up query for tag-search.
-                Resource resource = super.getUserRegistry().newResource();
+                Resource resource = registry.newResource();
                 resource.setContent("SELECT RT.REG_TAG_ID FROM REG_RESOURCE_TAG RT ORDER BY "
                         + "RT.REG_TAG_ID");
                 resource.setMediaType(RegistryConstants.SQL_QUERY_MEDIA_TYPE);
                 resource.addProperty(RegistryConstants.RESULT_TYPE_PROPERTY_NAME,
                         RegistryConstants.TAGS_RESULT_TYPE);
-                super.getUserRegistry().put(tagsQueryPath, resource);
+                registry.put(tagsQueryPath, resource);
             }
             return true;
         } catch (RegistryException e) {
@@ -226,37 +214,23 @@ public class Tags extends PaginationCalculation<Tag> {
     }
 
     @Override
-    protected Response getPaginatedResults(Tag[] tags, int start, int size, String sortBy, String sortOrder) {
-        org.wso2.carbon.registry.core.Tag[] paginatedTags;
-
-        String[] tagNames = new String[tags.length];
-        if (size == 0 && start == 0) {
-            for (int i = 0; i < tags.length; i++) {
-                tagNames[i] = tags[i].getTagName();
-            }
-            TagModel tagModel = new TagModel();
-            tagModel.setTags(tagNames);
-            return Response.ok(tagModel).build();
-        }
-
-        if (tags.length < start) {
-            return Response.status(Response.Status.BAD_REQUEST).build();
-        }
+    protected Comparator<Tag> getOrdering() {
+        return Comparator.comparing(Tag::getTagName, Comparator.nullsFirst(String::compareTo));
+    }
 
-        if (tags.length < start + size) {
-            paginatedTags = new org.wso2.carbon.registry.core.Tag[tags.length - start];
-            System.arraycopy(tags, start, paginatedTags, 0, tags.length - start);
+    @Override
+    protected String getFingerprint(Tag tag) {
+        return tag.getTagName();
+    }
 
-        } else {
-            paginatedTags = new org.wso2.carbon.registry.core.Tag[size];
-            System.arraycopy(tags, start, paginatedTags, 0, size);
-        }
-        String[] paginatedTagNames = new String[paginatedTags.length];
-        for (int i = 0; i < paginatedTags.length; i++) {
-            paginatedTagNames[i] = paginatedTags[i].getTagName();
+    @Override
+    protected Object toEntity(List<Tag> tags) {
+        String[] tagNames = new String[tags.size()];
+        for (int i = 0; i < tagNames.length; i++) {
+            tagNames[i] = tags.get(i).getTagName();
         }
-        TagModel paginatedTagModel = new TagModel();
-        paginatedTagModel.setTags(paginatedTagNames);
-        return Response.ok(paginatedTagModel).build();
+        TagModel tagModel = new TagModel();
+        tagModel.setTags(tagNames);
+        return tagModel;
     }
 }
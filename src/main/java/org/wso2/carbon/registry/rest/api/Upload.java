@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
+import org.wso2.carbon.registry.rest.api.content.BlobStore;
+import org.wso2.carbon.registry.rest.api.exception.UploadSizeExceededException;
+import org.wso2.carbon.registry.rest.api.model.UploadSessionModel;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
+import org.wso2.carbon.registry.rest.api.upload.UploadSession;
+import org.wso2.carbon.registry.rest.api.upload.UploadSessionManager;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * This class handles resumable uploads of resource content.
+ * An upload session is opened for a resource path, the content is sent in chunks at increasing offsets and spooled to
+ * a local file, and the session is committed to the registry once the SHA-256 checksum of the whole content matches.
+ * If a chunk fails, the client asks for the committed offset and resumes from there.
+ */
+@Path("/upload")
+@Api(value = "/upload",
+     description = "Rest api for doing resumable uploads of resource content",
+     produces = MediaType.APPLICATION_JSON)
+public class Upload extends RegistryRestSuper {
+
+    private static final String COLLECTION_MEDIA_TYPE = "application/atomcoll+xml";
+
+    private Log log = LogFactory.getLog(Upload.class);
+
+    /**
+     * This method opens an upload session for the given resource path.
+     *
+     * @param resourcePath - Path of the resource the content is committed to.
+     * @param mediaType    - Media type of the resource.
+     * @return - JSON UploadSessionModel, HTTP 201 Created with the location of the session.
+     */
+    @POST
+    @Produces("application/json")
+    @ApiOperation(value = "Open an upload session",
+                  httpMethod = "POST",
+                  notes = "Open a resumable upload session for the content of a resource",
+                  response = UploadSessionModel.class)
+    @ApiResponses(value = { @ApiResponse(code = 201, message = "Upload session opened"),
+                            @ApiResponse(code = 400, message = "Missing path or media type, or media type mismatch"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 409, message = "A collection exists at the given path"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+    public Response createSession(@QueryParam("path") String resourcePath,
+                                  @QueryParam("mediaType") String mediaType,
+                                  @Context RestAPIAuthContext authContext,
+                                  @Context Registry registry) {
+        if (resourcePath == null || resourcePath.isEmpty() || mediaType == null || mediaType.isEmpty()
+            || mediaType.contains(COLLECTION_MEDIA_TYPE)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            Response conflict = checkTarget(registry, resourcePath, mediaType);
+            if (conflict != null) {
+                return conflict;
+            }
+            UploadSession session = UploadSessionManager.create(authContext.getTenantId(),
+                                                                authContext.getUserName(), resourcePath, mediaType);
+            return Response.created(URI.create("upload/" + session.getId()))
+                    .entity(new UploadSessionModel(session)).build();
+
+        } catch (RegistryException | IOException e) {
+            log.error("Failed to open an upload session for " + resourcePath, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * This method returns the upload session with its committed offset.
+     *
+     * @param id - Id of the upload session.
+     * @return - JSON UploadSessionModel, HTTP 200 OK.
+     */
+    @GET
+    @Path("/{id}")
+    @Produces("application/json")
+    @ApiOperation(value = "Get an upload session",
+                  httpMethod = "GET",
+                  notes = "Fetch an upload session and the offset committed so far",
+                  response = UploadSessionModel.class)
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "Found the upload session and returned in body"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Upload session not found")})
+    public Response getSession(@PathParam("id") String id,
+                               @Context RestAPIAuthContext authContext) {
+        UploadSession session = UploadSessionManager.get(id, authContext.getTenantId(), authContext.getUserName());
+        if (session == null) {
+            return sessionNotFound(id);
+        }
+        return Response.ok(new UploadSessionModel(session))
+                .header(RestAPIConstants.UPLOAD_OFFSET_HEADER, session.getOffset()).build();
+    }
+
+    /**
+     * This method appends a chunk of content to the upload session.
+     *
+     * @param id     - Id of the upload session.
+     * @param offset - Offset of the chunk, required and must equal the committed offset of the session.
+     * @param chunk  - Content of the chunk.
+     * @return - HTTP 204 No Content with the new committed offset in the X-Upload-Offset header.
+     */
+    @PUT
+    @Path("/{id}")
+    @Consumes("*/*")
+    @ApiOperation(value = "Upload a chunk",
+                  httpMethod = "PUT",
+                  notes = "Append a chunk of content at the committed offset of an upload session")
+    @ApiResponses(value = { @ApiResponse(code = 204, message = "Chunk stored, the committed offset is returned"),
+                            @ApiResponse(code = 400, message = "Missing offset"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Upload session not found"),
+                            @ApiResponse(code = 409, message = "Offset does not match the committed offset"),
+                            @ApiResponse(code = 413, message = "Upload exceeds the maximum size"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred")})
+    public Response uploadChunk(@PathParam("id") String id,
+                                @QueryParam("offset") Long offset,
+                                InputStream chunk,
+                                @Context RestAPIAuthContext authContext) {
+        if (offset == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Missing offset").build();
+        }
+        UploadSession session = UploadSessionManager.get(id, authContext.getTenantId(), authContext.getUserName());
+        if (session == null) {
+            return sessionNotFound(id);
+        }
+        try {
+            // the offset check and the write happen under the session lock, so concurrent chunks cannot interleave
+            synchronized (session) {
+                if (offset.longValue() != session.getOffset() || session.isCompleted()) {
+                    return Response.status(Response.Status.CONFLICT)
+                            .header(RestAPIConstants.UPLOAD_OFFSET_HEADER, session.getOffset()).build();
+                }
+                long committed = session.append(chunk, UploadSessionManager.getMaxBytes(),
+                                                UploadSessionManager.getBufferSize());
+                return Response.status(Response.Status.NO_CONTENT)
+                        .header(RestAPIConstants.UPLOAD_OFFSET_HEADER, committed).build();
+            }
+        } catch (UploadSizeExceededException e) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(e.getMessage())
+                    .header(RestAPIConstants.UPLOAD_OFFSET_HEADER, session.getOffset()).build();
+        } catch (IOException e) {
+            log.error("Failed to store a chunk of upload session " + id, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage())
+                    .header(RestAPIConstants.UPLOAD_OFFSET_HEADER, session.getOffset()).build();
+        }
+    }
+
+    /**
+     * This method verifies the checksum of the uploaded content and commits it to the registry.
+     *
+     * @param id       - Id of the upload session.
+     * @param checksum - Hex encoded SHA-256 checksum of the whole content.
+     * @return - HTTP 201 Created if a new resource is created, HTTP 204 No Content if the resource is updated.
+     */
+    @POST
+    @Path("/{id}/commit")
+    @Produces("application/json")
+    @ApiOperation(value = "Commit an upload session",
+                  httpMethod = "POST",
+                  notes = "Verify the checksum of the uploaded content and store it in the registry")
+    @ApiResponses(value = { @ApiResponse(code = 201, message = "Resource created successfully"),
+                            @ApiResponse(code = 204, message = "Resource updated successfully"),
+                            @ApiResponse(code = 400, message = "Checksum or media type mismatch"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Upload session not found"),
+                            @ApiResponse(code = 409, message = "Upload session is already being committed"),
+                            @ApiResponse(code = 500, message = "Internal server error occurred, the commit can be "
+                                                                + "retried")})
+    public Response commitSession(@PathParam("id") String id,
+                                  @QueryParam("checksum") String checksum,
+                                  @Context RestAPIAuthContext authContext,
+                                  @Context Registry registry) {
+        UploadSession session = UploadSessionManager.get(id, authContext.getTenantId(), authContext.getUserName());
+        if (session == null) {
+            return sessionNotFound(id);
+        }
+        if (checksum == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Missing checksum").build();
+        }
+        if (!session.complete()) {
+            return Response.status(Response.Status.CONFLICT).build();
+        }
+        String resourcePath = session.getPath();
+        boolean removed = false;
+        try {
+            String digest = Hex.encodeHexString(session.digest(UploadSessionManager.getBufferSize()));
+            if (!digest.equalsIgnoreCase(checksum.trim())) {
+                UploadSessionManager.remove(session);
+                removed = true;
+                return Response.status(Response.Status.BAD_REQUEST).entity(
+                        "Checksum mismatch, uploaded content has checksum " + digest).build();
+            }
+            Response conflict = checkTarget(registry, resourcePath, session.getMediaType());
+            if (conflict != null) {
+                UploadSessionManager.remove(session);
+                removed = true;
+                return conflict;
+            }
+            Resource resource = fetchMetaData(registry, resourcePath);
+            boolean created = resource == null;
+            if (created) {
+                resource = registry.newResource();
+                resource.setMediaType(session.getMediaType());
+            }
+            if (BlobStore.isEnabled()) {
+                // the spool file is linked into the blob store instead of being copied again, and kept for a retry
+                BlobStore.putContent(registry, authContext.getTenantId(), resourcePath, resource,
+                                     new BlobStore.SpooledContent(session.getSpoolFile(), digest,
+                                                                  session.getOffset()), true);
+            } else {
+                try (InputStream content = session.openContent()) {
+                    resource.setContentStream(content);
+                    resource.removeProperty(BlobStore.BLOB_DIGEST_PROPERTY);
+                    resource.removeProperty(BlobStore.BLOB_LENGTH_PROPERTY);
+                    registry.put(resourcePath, resource);
+                }
+            }
+            MetaDataCache.invalidate(authContext.getTenantId(), resourcePath);
+            UploadSessionManager.remove(session);
+            removed = true;
+            if (created) {
+                return Response.status(Response.Status.CREATED).entity("Created : " + resourcePath).build();
+            }
+            return Response.status(Response.Status.NO_CONTENT).build();
+
+        } catch (RegistryException | IOException e) {
+            log.error("Failed to commit upload session " + id + " to " + resourcePath, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+        } finally {
+            if (!removed) {
+                // whatever failed, the uploaded content is kept and the client can retry the commit
+                UploadSessionManager.release(session);
+            }
+        }
+    }
+
+    /**
+     * This method aborts the upload session and discards the uploaded content.
+     *
+     * @param id - Id of the upload session.
+     * @return - HTTP 204 No Content.
+     */
+    @DELETE
+    @Path("/{id}")
+    @ApiOperation(value = "Abort an upload session",
+                  httpMethod = "DELETE",
+                  notes = "Abort an upload session and discard the uploaded content")
+    @ApiResponses(value = { @ApiResponse(code = 204, message = "Upload session aborted"),
+                            @ApiResponse(code = 401, message = "Invalid credentials provided"),
+                            @ApiResponse(code = 404, message = "Upload session not found"),
+                            @ApiResponse(code = 409, message = "Upload session is being committed")})
+    public Response abortSession(@PathParam("id") String id,
+                                 @Context RestAPIAuthContext authContext) {
+        UploadSession session = UploadSessionManager.get(id, authContext.getTenantId(), authContext.getUserName());
+        if (session == null) {
+            return sessionNotFound(id);
+        }
+        if (session.isCompleted()) {
+            // the spool file is being committed
+            return Response.status(Response.Status.CONFLICT).entity("Upload session is being committed").build();
+        }
+        UploadSessionManager.remove(session);
+        return Response.status(Response.Status.NO_CONTENT).build();
+    }
+
+    /**
+     * Applies the rules of the resource PUT: content cannot replace a collection, and an existing resource keeps its
+     * media type.
+     *
+     * @return the error response, or null if the content can be stored at the path
+     */
+    private static Response checkTarget(Registry registry, String resourcePath, String mediaType)
+            throws RegistryException {
+        Resource existing = fetchMetaData(registry, resourcePath);
+        if (existing instanceof Collection) {
+            return Response.status(Response.Status.CONFLICT).entity(
+                    "Collection already exist " + resourcePath).build();
+        }
+        if (existing != null && !mediaType.equals(existing.getMediaType())) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        return null;
+    }
+
+    private static Response sessionNotFound(String id) {
+        return Response.status(Response.Status.NOT_FOUND).entity("Upload session not found : " + id).build();
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.archive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.content.BlobStore;
+import org.wso2.carbon.registry.rest.api.exception.InvalidArchiveException;
+import org.wso2.carbon.registry.rest.api.exception.UploadSizeExceededException;
+import org.wso2.carbon.registry.rest.api.model.ImportEntryResultModel;
+import org.wso2.carbon.registry.rest.api.upload.UploadSessionManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Imports a zip archive into a collection while reading it from the request.
+ * Entries are unpacked on the fly: small contents are kept in memory, larger ones are spooled to disk. Resources are
+ * grouped into batches which are written by a shared pool of workers, each batch in one registry transaction; a
+ * bounded number of batches per import is in flight, so the memory and disk used do not depend on the archive size.
+ * Collections are created by the reading thread before their children are handed to the workers. Sidecar entries
+ * written by the {@link ArchiveWriter} supply the media type, description, properties and tags of the resources.
+ * Every entry and the archive as a whole may unpack to at most the maximum upload size of the
+ * {@link UploadSessionManager}; an archive exceeding it fails the import.
+ */
+public class ArchiveImporter {
+
+    public static final String WORKERS_PROPERTY = "registry.rest.api.import.workers";
+    public static final String BATCH_SIZE_PROPERTY = "registry.rest.api.import.batchSize";
+    public static final String IN_MEMORY_ENTRY_SIZE_PROPERTY = "registry.rest.api.import.inMemoryEntryBytes";
+
+    private static final int DEFAULT_WORKERS = 4;
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int DEFAULT_IN_MEMORY_ENTRY_SIZE = 32 * 1024;
+    private static final String SPOOL_FILE_PREFIX = "registry-import-";
+
+    private static Log log = LogFactory.getLog(ArchiveImporter.class);
+
+    private static final int workerCount = Integer.getInteger(WORKERS_PROPERTY, DEFAULT_WORKERS);
+    private static final int batchSize = Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE);
+    private static final int inMemoryEntrySize = Integer.getInteger(IN_MEMORY_ENTRY_SIZE_PROPERTY,
+                                                                    DEFAULT_IN_MEMORY_ENTRY_SIZE);
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+        Thread thread = new Thread(runnable, "registry-rest-import-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Registry registry;
+    private final int tenantId;
+    private final String tenantDomain;
+    private final String userName;
+    private final String targetPath;
+    private final Semaphore batchPermits = new Semaphore(workerCount * 2);
+    private final List<ImportEntryResultModel> results =
+            Collections.synchronizedList(new ArrayList<ImportEntryResultModel>());
+    private final List<Future<?>> futures = new ArrayList<Future<?>>();
+    private final Set<String> collections = new HashSet<String>();
+    private List<Entry> batch = new ArrayList<Entry>();
+    private Entry pendingEntry;
+    private String pendingCollectionName;
+    private String pendingCollectionPath;
+    private final byte[] buffer = new byte[8192];
+
+    /**
+     * @param registry     registry of the user
+     * @param tenantId     tenant of the user
+     * @param tenantDomain tenant domain of the user
+     * @param userName     user importing the archive
+     * @param targetPath   path of the existing collection the archive is imported into
+     */
+    public ArchiveImporter(Registry registry, int tenantId, String tenantDomain, String userName,
+                           String targetPath) {
+        this.registry = registry;
+        this.tenantId = tenantId;
+        this.tenantDomain = tenantDomain;
+        this.userName = userName;
+        this.targetPath = targetPath.length() > 1 && targetPath.endsWith("/")
+                          ? targetPath.substring(0, targetPath.length() - 1) : targetPath;
+        collections.add(this.targetPath);
+    }
+
+    /**
+     * Stops the workers of all imports, interrupting the batches being written. Called when the webapp is undeployed.
+     */
+    public static void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Reads the archive and imports its entries, waiting until all batches are written.
+     *
+     * @param inputStream zip archive
+     * @return result of every imported resource and collection
+     * @throws InvalidArchiveException      if the archive is not a valid zip archive or holds an invalid metadata
+     *                                      entry; the batches written until then stay imported
+     * @throws UploadSizeExceededException  if the archive unpacks to more than the maximum size
+     * @throws IOException                  if the archive cannot be spooled or stored
+     */
+    public List<ImportEntryResultModel> importArchive(InputStream inputStream)
+            throws IOException, RegistryException, InterruptedException {
+        try {
+            ZipInputStream zipStream = new ZipInputStream(inputStream);
+            LimitedEntryStream entryStream = new LimitedEntryStream(zipStream, UploadSessionManager.getMaxBytes());
+            ZipEntry zipEntry;
+            while ((zipEntry = zipStream.getNextEntry()) != null) {
+                entryStream.nextEntry();
+                readEntry(zipEntry, entryStream);
+            }
+            flushPendingEntry();
+            submitBatch();
+        } catch (IOException | RegistryException | InterruptedException e) {
+            discard(pendingEntry);
+            for (Entry entry : batch) {
+                discard(entry);
+            }
+            if (e instanceof ZipException || e instanceof EOFException || e instanceof JsonProcessingException) {
+                throw new InvalidArchiveException("Invalid archive : " + e.getMessage(), e);
+            }
+            throw e;
+        } finally {
+            awaitBatches();
+        }
+        return new ArrayList<ImportEntryResultModel>(results);
+    }
+
+    private void readEntry(ZipEntry zipEntry, InputStream zipStream)
+            throws IOException, RegistryException, InterruptedException {
+        String name = zipEntry.getName();
+        if (name.startsWith(ArchiveWriter.METADATA_DIRECTORY)) {
+            readMetadata(name, zipStream);
+            return;
+        }
+        flushPendingEntry();
+        pendingCollectionName = null;
+        String entryName = zipEntry.isDirectory() ? name.substring(0, name.length() - 1) : name;
+        String path = resolvePath(targetPath, entryName);
+        if (path == null) {
+            results.add(new ImportEntryResultModel(name, ImportEntryResultModel.FAILED, "Invalid entry name"));
+            return;
+        }
+        if (zipEntry.isDirectory()) {
+            ensureCollection(path);
+            pendingCollectionName = entryName;
+            pendingCollectionPath = path;
+            return;
+        }
+        ensureCollection(path.substring(0, path.lastIndexOf('/')));
+        pendingEntry = new Entry(entryName, path);
+        readContent(pendingEntry, zipStream);
+    }
+
+    /**
+     * Applies a sidecar entry to the resource or collection read just before it. Sidecars of other entries are
+     * ignored.
+     */
+    private void readMetadata(String name, InputStream zipStream) throws IOException, RegistryException,
+                                                                             InterruptedException {
+        if (!name.endsWith(ArchiveWriter.METADATA_SUFFIX)) {
+            return;
+        }
+        String entryName = name.substring(ArchiveWriter.METADATA_DIRECTORY.length(),
+                                          name.length() - ArchiveWriter.METADATA_SUFFIX.length());
+        if (pendingEntry != null && pendingEntry.name.equals(entryName)) {
+            pendingEntry.metadata = ArchiveMetadata.parse(zipStream);
+            flushPendingEntry();
+        } else if (pendingCollectionName != null && pendingCollectionName.equals(entryName)) {
+            ArchiveMetadata metadata = ArchiveMetadata.parse(zipStream);
+            Resource collection = registry.getMetaData(pendingCollectionPath);
+            applyMetadata(collection, metadata);
+            registry.put(pendingCollectionPath, collection);
+            applyTags(pendingCollectionPath, metadata);
+            pendingCollectionName = null;
+        }
+    }
+
+    private void readContent(Entry entry, InputStream zipStream) throws IOException {
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        int read;
+        while (memory.size() <= inMemoryEntrySize && (read = zipStream.read(buffer)) >= 0) {
+            memory.write(buffer, 0, read);
+        }
+        if (memory.size() <= inMemoryEntrySize) {
+            entry.content = memory.toByteArray();
+            return;
+        }
+        // too large to be kept in memory, the part read so far and the rest of the entry are spooled to disk
+        // the entry stream ignores close, the archive stays open for the next entries
+        InputStream rest = new SequenceInputStream(new ByteArrayInputStream(memory.toByteArray()), zipStream);
+        if (BlobStore.isEnabled()) {
+            entry.spooledContent = BlobStore.spool(rest);
+            return;
+        }
+        Path file = UploadSessionManager.createSpoolFile(SPOOL_FILE_PREFIX);
+        try {
+            long length = Files.copy(rest, file, StandardCopyOption.REPLACE_EXISTING);
+            entry.spooledContent = new BlobStore.SpooledContent(file, null, length);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private void flushPendingEntry() throws InterruptedException {
+        if (pendingEntry == null) {
+            return;
+        }
+        batch.add(pendingEntry);
+        pendingEntry = null;
+        if (batch.size() >= batchSize) {
+            submitBatch();
+        }
+    }
+
+    private void submitBatch() throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<Entry> entries = batch;
+        batch = new ArrayList<Entry>();
+        // wait for a batch to complete before reading on, to bound the spooled content
+        batchPermits.acquire();
+        try {
+            futures.add(workers.submit(() -> {
+                try {
+                    writeBatch(entries);
+                } finally {
+                    batchPermits.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            batchPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a batch of resources in one transaction. If any of them fails, the whole batch is rolled back and all
+     * of its resources are reported as failed.
+     */
+    private void writeBatch(List<Entry> entries) {
+        PrivilegedCarbonContext.startTenantFlow();
+        try {
+            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+            carbonContext.setTenantId(tenantId);
+            carbonContext.setTenantDomain(tenantDomain);
+            carbonContext.setUsername(userName);
+            Entry current = null;
+            try {
+                registry.beginTransaction();
+                for (Entry entry : entries) {
+                    current = entry;
+                    writeEntry(entry);
+                }
+                registry.commitTransaction();
+                for (Entry entry : entries) {
+                    results.add(new ImportEntryResultModel(entry.path, ImportEntryResultModel.IMPORTED, null));
+                }
+            } catch (RegistryException | IOException | RuntimeException e) {
+                log.error("Failed to import " + (current != null ? current.path : "a batch")
+                          + ", the batch is rolled back", e);
+                rollback();
+                for (Entry entry : entries) {
+                    String message = entry == current ? e.getMessage()
+                                     : current != null ? "Rolled back with " + current.path : "Batch rolled back";
+                    results.add(new ImportEntryResultModel(entry.path, ImportEntryResultModel.FAILED, message));
+                }
+            }
+        } finally {
+            for (Entry entry : entries) {
+                discard(entry);
+            }
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    private void writeEntry(Entry entry) throws RegistryException, IOException {
+        Resource resource = registry.newResource();
+        if (entry.metadata != null) {
+            resource.setMediaType(entry.metadata.getMediaType());
+            applyMetadata(resource, entry.metadata);
+        }
+        if (entry.content != null) {
+            resource.setContent(entry.content);
+            registry.put(entry.path, resource);
+        } else if (BlobStore.isEnabled()) {
+            BlobStore.putContent(registry, tenantId, entry.path, resource, entry.spooledContent);
+        } else {
+            try (InputStream inputStream = Files.newInputStream(entry.spooledContent.getFile())) {
+                resource.setContentStream(inputStream);
+                registry.put(entry.path, resource);
+            }
+        }
+        if (entry.metadata != null) {
+            applyTags(entry.path, entry.metadata);
+        }
+    }
+
+    private void rollback() {
+        try {
+            registry.rollbackTransaction();
+        } catch (RegistryException e) {
+            log.error("Failed to roll back an import batch", e);
+        }
+    }
+
+    private void awaitBatches() throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.error("Import batch failed", e.getCause());
+            }
+        }
+    }
+
+    private void ensureCollection(String path) throws RegistryException {
+        if (collections.contains(path)) {
+            return;
+        }
+        ensureCollection(path.substring(0, Math.max(path.lastIndexOf('/'), 1)));
+        if (!registry.resourceExists(path)) {
+            registry.put(path, registry.newCollection());
+            results.add(new ImportEntryResultModel(path, ImportEntryResultModel.IMPORTED, null));
+        }
+        collections.add(path);
+    }
+
+    private static void applyMetadata(Resource resource, ArchiveMetadata metadata) {
+        if (metadata.getDescription() != null) {
+            resource.setDescription(metadata.getDescription());
+        }
+        for (Map.Entry<String, List<String>> property : metadata.getProperties().entrySet()) {
+            // blob references of the exporting tenant do not resolve here
+            if (!property.getKey().startsWith(BlobStore.BLOB_PROPERTY_PREFIX)) {
+                resource.setProperty(property.getKey(), property.getValue());
+            }
+        }
+    }
+
+    private void applyTags(String path, ArchiveMetadata metadata) throws RegistryException {
+        for (String tag : metadata.getTags()) {
+            registry.applyTag(path, tag);
+        }
+    }
+
+    /**
+     * @param targetPath path of the collection the archive is imported into, without a trailing separator
+     * @param entryName  name of the zip entry, without the trailing separator of a directory entry
+     * @return the registry path of the entry below the target collection, or null if the entry name could escape it
+     */
+    static String resolvePath(String targetPath, String entryName) {
+        if (entryName.isEmpty() || entryName.startsWith("/") || entryName.contains("\\") || entryName.contains(";")) {
+            return null;
+        }
+        for (String segment : entryName.split("/", -1)) {
+            if (segment.isEmpty() || ".".equals(segment) || "..".equals(segment)) {
+                return null;
+            }
+        }
+        return ("/".equals(targetPath) ? "" : targetPath) + "/" + entryName;
+    }
+
+    private static void discard(Entry entry) {
+        if (entry == null || entry.spooledContent == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(entry.spooledContent.getFile());
+        } catch (IOException e) {
+            log.warn("Failed to delete the spool file " + entry.spooledContent.getFile(), e);
+        }
+    }
+
+    /**
+     * Reads the current entry of the archive, failing once the entry or all entries read so far unpack to more than
+     * the maximum size. Closing it leaves the archive open.
+     */
+    private static class LimitedEntryStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long entryBytes;
+        private long totalBytes;
+
+        private LimitedEntryStream(ZipInputStream zipStream, long maxBytes) {
+            super(zipStream);
+            this.maxBytes = maxBytes;
+        }
+
+        private void nextEntry() {
+            entryBytes = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long length) throws IOException {
+            long skipped = super.skip(length);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // the archive stream stays open for the next entries
+        }
+
+        private void count(long bytes) throws UploadSizeExceededException {
+            entryBytes += bytes;
+            totalBytes += bytes;
+            if (entryBytes > maxBytes || totalBytes > maxBytes) {
+                throw new UploadSizeExceededException("Archive exceeds the maximum size of " + maxBytes + " bytes");
+            }
+        }
+    }
+
+    /**
+     * A resource read from the archive, waiting to be written.
+     */
+    private static class Entry {
+
+        private final String name;
+        private final String path;
+        private byte[] content;
+        private BlobStore.SpooledContent spooledContent;
+        private ArchiveMetadata metadata;
+
+        private Entry(String name, String path) {
+            this.name = name;
+            this.path = path;
+        }
+    }
+}
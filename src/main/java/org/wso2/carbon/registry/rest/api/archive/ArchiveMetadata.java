@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.archive;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.registry.rest.api.exception.InvalidArchiveException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metadata of a resource read from a sidecar entry written by the {@link ArchiveWriter}.
+ */
+public class ArchiveMetadata {
+
+    // the sidecar is read from the archive stream, which must stay open for the next entries
+    private static final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private String mediaType;
+    private String description;
+    private final Map<String, List<String>> properties = new LinkedHashMap<String, List<String>>();
+    private final List<String> tags = new ArrayList<String>();
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Map<String, List<String>> getProperties() {
+        return properties;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Reads the metadata from a sidecar entry. Unknown fields are skipped.
+     *
+     * @param inputStream stream positioned at the sidecar entry, it is not closed
+     * @return metadata of the resource
+     * @throws IOException if the entry is not a valid sidecar
+     */
+    public static ArchiveMetadata parse(InputStream inputStream) throws IOException {
+        ArchiveMetadata metadata = new ArchiveMetadata();
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidArchiveException("Archive metadata is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (ArchiveWriter.MEDIA_TYPE_FIELD.equals(field) && token == JsonToken.VALUE_STRING) {
+                    metadata.mediaType = parser.getText();
+                } else if (ArchiveWriter.DESCRIPTION_FIELD.equals(field) && token == JsonToken.VALUE_STRING) {
+                    metadata.description = parser.getText();
+                } else if (ArchiveWriter.PROPERTIES_FIELD.equals(field) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.getCurrentName();
+                        parser.nextToken();
+                        metadata.properties.put(name, readStrings(parser));
+                    }
+                } else if (ArchiveWriter.TAGS_FIELD.equals(field) && token == JsonToken.START_ARRAY) {
+                    metadata.tags.addAll(readStrings(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return metadata;
+    }
+
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        List<String> values = new ArrayList<String>();
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return values;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.getCurrentToken() == null) {
+                throw new InvalidArchiveException("Unexpected end of archive metadata");
+            }
+            if (parser.getCurrentToken().isStructStart()) {
+                parser.skipChildren();
+            } else {
+                values.add(parser.getText());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.archive;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.Tag;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.rest.api.content.BlobStore;
+import org.wso2.carbon.registry.rest.api.content.ResourceContent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a collection subtree as a zip archive while walking it.
+ * Every resource is written as an entry at its path below the name of the exported collection, followed by a
+ * sidecar entry under {@value #METADATA_DIRECTORY} holding its media type, description, properties and tags as JSON.
+ * Children are listed a page at a time and contents are copied in chunks, so neither the archive nor the listing of
+ * a collection is held in memory. Content kept in the {@link BlobStore} is copied from its file using the metadata of
+ * the resource alone; other content is streamed from the resource, which is fetched with its content one at a time.
+ */
+public class ArchiveWriter {
+
+    public static final String METADATA_DIRECTORY = ".registry/";
+    public static final String METADATA_SUFFIX = ".json";
+
+    public static final String PATH_FIELD = "path";
+    public static final String COLLECTION_FIELD = "collection";
+    public static final String MEDIA_TYPE_FIELD = "mediaType";
+    public static final String DESCRIPTION_FIELD = "description";
+    public static final String PROPERTIES_FIELD = "properties";
+    public static final String TAGS_FIELD = "tags";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final String ROOT_NAME = "root";
+
+    private static Log log = LogFactory.getLog(ArchiveWriter.class);
+
+    // the zip stream must stay open between the sidecar entries
+    private static final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final Registry registry;
+    private final int tenantId;
+    private final int maxDepth;
+    private final List<String> mediaTypes;
+    private final int pageSize;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private String rootPath;
+    private String rootName;
+
+    /**
+     * @param registry   registry of the user
+     * @param tenantId   tenant of the user, used to read content kept in the blob store
+     * @param maxDepth   number of collection levels below the exported collection to include, negative for all
+     * @param mediaTypes media types of the resources to include, "type/*" matches a whole type; empty for all
+     * @param pageSize   number of children listed per registry call
+     */
+    public ArchiveWriter(Registry registry, int tenantId, int maxDepth, List<String> mediaTypes, int pageSize) {
+        this.registry = registry;
+        this.tenantId = tenantId;
+        this.maxDepth = maxDepth;
+        this.mediaTypes = mediaTypes;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Writes the archive of the collection to the output stream. The output stream is not closed.
+     *
+     * @param collectionPath path of the exported collection
+     * @param outputStream   stream to write the archive to
+     */
+    public void write(String collectionPath, OutputStream outputStream) throws RegistryException, IOException {
+        ZipOutputStream zipStream = new ZipOutputStream(outputStream);
+        rootPath = collectionPath;
+        rootName = collectionPath.substring(collectionPath.lastIndexOf('/') + 1);
+        if (rootName.isEmpty()) {
+            // the root collection has no name of its own
+            rootName = ROOT_NAME;
+        }
+        Resource collection = registry.getMetaData(collectionPath);
+        writeCollection(collection, collectionPath, 0, zipStream);
+        zipStream.finish();
+        zipStream.flush();
+    }
+
+    private void writeCollection(Resource collection, String collectionPath, int depth, ZipOutputStream zipStream)
+            throws RegistryException, IOException {
+        String entryName = getEntryName(collectionPath) + "/";
+        ZipEntry entry = new ZipEntry(entryName);
+        setTime(entry, collection);
+        zipStream.putNextEntry(entry);
+        zipStream.closeEntry();
+        writeMetadata(collection, collectionPath, entryName.substring(0, entryName.length() - 1), zipStream);
+        if (maxDepth >= 0 && depth >= maxDepth) {
+            return;
+        }
+        int start = 0;
+        String[] children;
+        do {
+            children = ((Collection) registry.get(collectionPath, start, pageSize)).getChildren();
+            for (String childPath : children) {
+                Resource child;
+                try {
+                    child = registry.getMetaData(childPath);
+                } catch (ResourceNotFoundException e) {
+                    // deleted while the subtree is exported
+                    continue;
+                }
+                if (child instanceof Collection) {
+                    writeCollection(child, childPath, depth + 1, zipStream);
+                } else if (isIncluded(child.getMediaType())) {
+                    writeResource(child, childPath, zipStream);
+                }
+            }
+            start += pageSize;
+        } while (children.length >= pageSize);
+    }
+
+    private void writeResource(Resource metadata, String resourcePath, ZipOutputStream zipStream)
+            throws RegistryException, IOException {
+        Resource resource = metadata;
+        if (BlobStore.getBlob(metadata, tenantId) == null) {
+            try {
+                resource = registry.get(resourcePath);
+            } catch (ResourceNotFoundException e) {
+                return;
+            }
+        }
+        ResourceContent content = new ResourceContent(resource, tenantId);
+        String entryName = getEntryName(resourcePath);
+        ZipEntry entry = new ZipEntry(entryName);
+        setTime(entry, resource);
+        zipStream.putNextEntry(entry);
+        if (!content.transferTo(0, Long.MAX_VALUE, zipStream)) {
+            try (InputStream inputStream = content.open(0)) {
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    zipStream.write(buffer, 0, read);
+                }
+            }
+        }
+        zipStream.closeEntry();
+        writeMetadata(resource, resourcePath, entryName, zipStream);
+        if (log.isDebugEnabled()) {
+            log.debug("Resource " + resourcePath + " written to the archive");
+        }
+    }
+
+    private void writeMetadata(Resource resource, String resourcePath, String entryName, ZipOutputStream zipStream)
+            throws RegistryException, IOException {
+        zipStream.putNextEntry(new ZipEntry(METADATA_DIRECTORY + entryName + METADATA_SUFFIX));
+        try (JsonGenerator generator = jsonFactory.createGenerator(zipStream)) {
+            generator.writeStartObject();
+            generator.writeStringField(PATH_FIELD, resourcePath);
+            generator.writeBooleanField(COLLECTION_FIELD, resource instanceof Collection);
+            if (resource.getMediaType() != null) {
+                generator.writeStringField(MEDIA_TYPE_FIELD, resource.getMediaType());
+            }
+            if (resource.getDescription() != null) {
+                generator.writeStringField(DESCRIPTION_FIELD, resource.getDescription());
+            }
+            generator.writeObjectFieldStart(PROPERTIES_FIELD);
+            for (Map.Entry<Object, Object> property : resource.getProperties().entrySet()) {
+                String name = property.getKey().toString();
+                // blob references only resolve in the tenant the content was stored in
+                if (name.startsWith(BlobStore.BLOB_PROPERTY_PREFIX)) {
+                    continue;
+                }
+                generator.writeArrayFieldStart(name);
+                if (property.getValue() instanceof List) {
+                    for (Object value : (List<?>) property.getValue()) {
+                        generator.writeString(String.valueOf(value));
+                    }
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeArrayFieldStart(TAGS_FIELD);
+            for (Tag tag : registry.getTags(resourcePath)) {
+                generator.writeString(tag.getTagName());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        zipStream.closeEntry();
+    }
+
+    private boolean isIncluded(String mediaType) {
+        if (mediaTypes == null || mediaTypes.isEmpty()) {
+            return true;
+        }
+        if (mediaType == null) {
+            return false;
+        }
+        for (String included : mediaTypes) {
+            if (included.equalsIgnoreCase(mediaType)
+                || (included.endsWith("/*") && mediaType.regionMatches(true, 0, included, 0, included.length() - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getEntryName(String resourcePath) {
+        String relativePath = resourcePath.substring(rootPath.length());
+        if (!relativePath.isEmpty() && !relativePath.startsWith("/")) {
+            relativePath = "/" + relativePath;
+        }
+        return rootName + relativePath;
+    }
+
+    private static void setTime(ZipEntry entry, Resource resource) {
+        if (resource.getLastModified() != null) {
+            entry.setTime(resource.getLastModified().getTime());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size bound and expiry time of an in-memory cache of the API, read once from system properties.
+ * Every cache built through {@link #build()} or passed to {@link #track(Cache)} is emptied by
+ * {@link #invalidateAll()} when the webapp is undeployed, which also runs the removal listeners of their entries.
+ * The owning classes only add what is specific to them: the key, and which entries a write invalidates.
+ */
+public class CacheSettings {
+
+    private static final List<Cache<?, ?>> caches = new CopyOnWriteArrayList<Cache<?, ?>>();
+
+    private final int maximumSize;
+    private final long expirySeconds;
+
+    /**
+     * @param sizeProperty         system property holding the maximum number of entries
+     * @param defaultSize          maximum number of entries if the property is not set
+     * @param expiryProperty       system property holding the expiry time in seconds
+     * @param defaultExpirySeconds expiry time in seconds if the property is not set
+     */
+    public CacheSettings(String sizeProperty, int defaultSize, String expiryProperty, long defaultExpirySeconds) {
+        this.maximumSize = Integer.getInteger(sizeProperty, defaultSize);
+        this.expirySeconds = Long.getLong(expiryProperty, defaultExpirySeconds);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getExpirySeconds() {
+        return expirySeconds;
+    }
+
+    /**
+     * @return builder of a cache bounded by the maximum size whose entries expire the expiry time after they are
+     *         written
+     */
+    public CacheBuilder<Object, Object> expireAfterWrite() {
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expirySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return builder of a cache bounded by the maximum size whose entries expire after they have not been read or
+     *         written for the expiry time
+     */
+    public CacheBuilder<Object, Object> expireAfterAccess() {
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterAccess(expirySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return a tracked cache bounded by the maximum size whose entries expire the expiry time after they are written
+     */
+    public <K, V> Cache<K, V> build() {
+        return track(expireAfterWrite().<K, V>build());
+    }
+
+    /**
+     * Registers a cache to be emptied by {@link #invalidateAll()}.
+     *
+     * @param cache cache of the API
+     * @return the cache
+     */
+    public static <K, V> Cache<K, V> track(Cache<K, V> cache) {
+        caches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Drops the entries of every tracked cache.
+     */
+    public static void invalidateAll() {
+        for (Cache<?, ?> cache : caches) {
+            cache.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import com.google.common.cache.Cache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.rest.api.model.ResourceModel;
+import javax.ws.rs.core.EntityTag;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Size bounded read-through cache of the resource metadata served by the metadata endpoint.
+ * Entries are keyed by tenant id, resource path and user name; the user is part of the key so that a user never gets
+ * metadata which was read with the permissions of another user. Every mutating endpoint of the API calls
+ * {@link #invalidate(int, String)}, which makes the entries of the path, its descendants and its parent collection
+ * stale. Invalidation only records the path; stale entries are dropped when they are read, so a write does not scan
+ * the cache. Writes made outside this API are picked up when the entries expire after the configured TTL.
+ */
+public class MetaDataCache {
+
+    public static final String CACHE_SIZE_PROPERTY = "registry.rest.api.metadata.cache.size";
+    public static final String CACHE_TTL_PROPERTY = "registry.rest.api.metadata.cache.ttlSeconds";
+
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final long DEFAULT_CACHE_TTL = 300;
+
+    private static Log log = LogFactory.getLog(MetaDataCache.class);
+
+    private static final CacheSettings settings = new CacheSettings(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE,
+                                                                    CACHE_TTL_PROPERTY, DEFAULT_CACHE_TTL);
+
+    private static final Cache<Key, Entry> resourceModels = settings.build();
+
+    private static final PathInvalidations invalidations = new PathInvalidations(settings);
+
+    /**
+     * @return the cached metadata of the resource, or null if it is not cached or has been invalidated
+     */
+    public static Entry get(int tenantId, String userName, String path) {
+        Key key = new Key(tenantId, userName, path);
+        Entry entry = resourceModels.getIfPresent(key);
+        if (entry != null && invalidations.isStale(tenantId, key.path, entry.version)) {
+            resourceModels.asMap().remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return version to pass to {@link #put(int, String, String, long, Entry)}, read before the metadata is fetched
+     */
+    public static long getVersion() {
+        return invalidations.getVersion();
+    }
+
+    /**
+     * Caches the metadata of a resource. If the path was invalidated while the metadata was fetched the entry is
+     * never served.
+     *
+     * @param version version read by {@link #getVersion()} before the metadata was fetched
+     */
+    public static void put(int tenantId, String userName, String path, long version, Entry entry) {
+        Key key = new Key(tenantId, userName, path);
+        if (invalidations.isStale(tenantId, key.path, version)) {
+            return;
+        }
+        entry.version = version;
+        resourceModels.put(key, entry);
+    }
+
+    /**
+     * Drops the cached metadata of the given path for every user of the tenant, together with the metadata of its
+     * descendants (including versioned paths) and of its parent collection.
+     *
+     * @param tenantId tenant id of the registry the path belongs to
+     * @param path     path of the modified resource
+     */
+    public static void invalidate(int tenantId, String path) {
+        if (path == null) {
+            return;
+        }
+        String resourcePath = PathInvalidations.normalize(path);
+        String parentPath = PathInvalidations.getParent(resourcePath);
+        invalidations.invalidate(tenantId, resourcePath, true);
+        if (parentPath != null) {
+            invalidations.invalidate(tenantId, parentPath, false);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Cached metadata invalidated for path : " + resourcePath + ", tenant : " + tenantId);
+        }
+    }
+
+    /**
+     * Cached metadata of a resource together with its validators.
+     */
+    public static class Entry {
+
+        private final ResourceModel resourceModel;
+        private final EntityTag entityTag;
+        private final Date lastModified;
+        private long version;
+
+        public Entry(ResourceModel resourceModel, EntityTag entityTag, Date lastModified) {
+            this.resourceModel = resourceModel;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+
+        public ResourceModel getResourceModel() {
+            return resourceModel;
+        }
+
+        public EntityTag getEntityTag() {
+            return entityTag;
+        }
+
+        public Date getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private static class Key {
+
+        private final int tenantId;
+        private final String userName;
+        private final String path;
+
+        private Key(int tenantId, String userName, String path) {
+            this.tenantId = tenantId;
+            this.userName = userName;
+            this.path = PathInvalidations.normalize(path);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return tenantId == key.tenantId && Objects.equals(userName, key.userName) && Objects.equals(path, key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, userName, path);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.RemovalCause;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log of the invalidated paths of a path keyed cache, which replaces scanning the cache on every write.
+ * Every invalidation takes the next version and records it for the invalidated path. A cached value remembers the
+ * version read by {@link #getVersion()} before it was loaded, and is stale if the path itself, or any ancestor of it
+ * invalidated with its subtree, has a later invalidation. Checking a value costs one lookup per path level, and a
+ * load which started before an invalidation can never be served after it.
+ * Records are kept as long as a cached value could be older than them, i.e. for the TTL of the cache. If a record
+ * has to be dropped earlier to stay within the size bound, every value loaded before that is treated as stale.
+ */
+class PathInvalidations {
+
+    private final AtomicLong version = new AtomicLong();
+    // values loaded before this version may have lost the record of their invalidation
+    private volatile long oldestValidVersion;
+    // version of the last invalidation of the path alone, and of the path with its subtree
+    private final Cache<Key, Long> paths;
+    private final Cache<Key, Long> subtrees;
+
+    /**
+     * @param settings size bound and expiry time of the cache whose invalidations are logged
+     */
+    PathInvalidations(CacheSettings settings) {
+        paths = newLog(settings);
+        subtrees = newLog(settings);
+    }
+
+    // not tracked, dropping the records would make stale values valid again
+    private Cache<Key, Long> newLog(CacheSettings settings) {
+        return settings.expireAfterWrite()
+                .<Key, Long>removalListener(notification -> {
+                    if (notification.getCause() == RemovalCause.SIZE) {
+                        oldestValidVersion = version.get();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @return current version, to be read before a value is loaded for the cache
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Invalidates the cached values of the path, and of its descendants (including versioned paths) if subtree is
+     * true.
+     */
+    void invalidate(int tenantId, String path, boolean subtree) {
+        long invalidation = version.incrementAndGet();
+        (subtree ? subtrees : paths).put(new Key(tenantId, normalize(path)), invalidation);
+    }
+
+    /**
+     * @param loadVersion version read before the cached value of the path was loaded
+     * @return true if the path was invalidated after the value was loaded
+     */
+    boolean isStale(int tenantId, String path, long loadVersion) {
+        if (loadVersion < oldestValidVersion) {
+            return true;
+        }
+        if (path == null) {
+            return false;
+        }
+        String current = normalize(path);
+        if (isAfter(paths.getIfPresent(new Key(tenantId, current)), loadVersion)) {
+            return true;
+        }
+        while (current != null) {
+            if (isAfter(subtrees.getIfPresent(new Key(tenantId, current)), loadVersion)) {
+                return true;
+            }
+            current = getParent(current);
+        }
+        return false;
+    }
+
+    /**
+     * Drops the trailing separator, so that a collection has a single key whichever way its path is written.
+     */
+    static String normalize(String path) {
+        return path != null && path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    /**
+     * @return the parent of the path, the unversioned path of a versioned path, or null for the root
+     */
+    static String getParent(String path) {
+        int versionIndex = path.indexOf(';');
+        if (versionIndex >= 0) {
+            return path.substring(0, versionIndex);
+        }
+        int index = path.lastIndexOf('/');
+        if (index < 0 || "/".equals(path)) {
+            return null;
+        }
+        return index == 0 ? "/" : path.substring(0, index);
+    }
+
+    private static boolean isAfter(Long invalidation, long loadVersion) {
+        return invalidation != null && invalidation > loadVersion;
+    }
+
+    private static class Key {
+
+        private final int tenantId;
+        private final String path;
+
+        private Key(int tenantId, String path) {
+            this.tenantId = tenantId;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return tenantId == key.tenantId && Objects.equals(path, key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, path);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.RegistryConstants;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.registry.rest.api.handler.TenantIdResolver;
+import org.wso2.carbon.user.core.UserStoreException;
+import org.wso2.carbon.user.core.tenant.Tenant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * In-process rating aggregates of resources, so that the average rating is read from memory instead of running the
+ * aggregate query of the registry on every request.
+ * An aggregate is a histogram of the ratings per star, kept in striped counters, from which the count, the sum and
+ * the average are derived exactly. It is seeded lazily on the first read of the resource, with the system registry of
+ * the tenant, by one query per star counting the raters who gave it; the query API only returns the paths of the
+ * ratings, so the stars are selected by the query rather than read per rating. It is then updated incrementally by
+ * every rate and rating removal made through this API; a seed waits for the rates of the resource in progress, so a
+ * rate is either seen by the seed or applied to the seeded aggregate, never both. Ratings changed outside this API
+ * are picked up when the aggregate is reconciled, i.e. seeded again, after the configured interval.
+ * The ratings query is stored in the config registry of every tenant when the API is deployed and when a tenant is
+ * loaded, never on a read. Invalidations are recorded in a {@link PathInvalidations} log, so a write never scans the
+ * aggregates.
+ */
+public class RatingAggregateStore {
+
+    public static final String CACHE_SIZE_PROPERTY = "registry.rest.api.rating.cache.size";
+    public static final String RECONCILE_INTERVAL_PROPERTY = "registry.rest.api.rating.reconcileSeconds";
+
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final long DEFAULT_RECONCILE_INTERVAL = 900;
+    private static final long SEED_RETRY_INTERVAL = 60;
+    private static final int LOCK_STRIPES = 64;
+    private static final String RATINGS_QUERY_PATH = RegistryConstants.CONFIG_REGISTRY_BASE_PATH
+                                                     + RegistryConstants.QUERIES_COLLECTION_PATH
+                                                     + "/resource-ratings-by-star";
+    // ratings of a resource are kept with its parent path and name, ratings of a collection with its own path only
+    private static final String RATINGS_QUERY =
+            "SELECT RR.REG_RATING_ID FROM REG_RESOURCE_RATING RR, REG_RATING R, REG_PATH P "
+            + "WHERE RR.REG_RATING_ID = R.REG_ID AND RR.REG_TENANT_ID = R.REG_TENANT_ID "
+            + "AND RR.REG_PATH_ID = P.REG_PATH_ID AND RR.REG_TENANT_ID = P.REG_TENANT_ID AND R.REG_RATING = ? "
+            + "AND ((P.REG_PATH_VALUE = ? AND RR.REG_RESOURCE_NAME = ?) "
+            + "OR (P.REG_PATH_VALUE = ? AND RR.REG_RESOURCE_NAME IS NULL))";
+    private static final String RATING_USER_SEPARATOR = ";ratings:";
+
+    private static Log log = LogFactory.getLog(RatingAggregateStore.class);
+
+    private static final CacheSettings settings = new CacheSettings(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE,
+                                                                    RECONCILE_INTERVAL_PROPERTY,
+                                                                    DEFAULT_RECONCILE_INTERVAL);
+
+    private static final Cache<Key, Aggregate> aggregates = settings.build();
+
+    private static final PathInvalidations invalidations = new PathInvalidations(settings);
+
+    // tenants whose aggregates could not be seeded lately, their averages are read from the registry meanwhile
+    private static final Cache<Integer, Boolean> seedFailures = CacheSettings.track(CacheBuilder.newBuilder()
+            .expireAfterWrite(SEED_RETRY_INTERVAL, TimeUnit.SECONDS)
+            .build());
+
+    private static final Set<Integer> queryTenants = ConcurrentHashMap.newKeySet();
+    // rates of a resource share its lock and its seed takes it exclusively, rates of the same user are serialized
+    private static final Striped<ReadWriteLock> resourceLocks = Striped.readWriteLock(LOCK_STRIPES);
+    private static final Striped<Lock> userLocks = Striped.lock(LOCK_STRIPES);
+
+    /**
+     * Returns the average rating of the resource, seeding its aggregate if it is not in memory.
+     * If the aggregate cannot be seeded the average is read from the registry.
+     *
+     * @param registry registry of the user, used if the aggregate cannot be seeded
+     * @param tenantId tenant id of the registry
+     * @param path     path of the resource
+     * @return average rating, 0 if the resource is not rated
+     */
+    public static float getAverageRating(Registry registry, int tenantId, String path) throws RegistryException {
+        Key key = new Key(tenantId, path);
+        Aggregate aggregate = aggregates.getIfPresent(key);
+        if (aggregate != null && invalidations.isStale(tenantId, key.path, aggregate.version)) {
+            aggregates.asMap().remove(key, aggregate);
+            aggregate = null;
+        }
+        if (aggregate == null) {
+            if (seedFailures.getIfPresent(tenantId) != null) {
+                return registry.getAverageRating(path);
+            }
+            try {
+                aggregate = aggregates.get(key, () -> seed(key));
+            } catch (ExecutionException e) {
+                log.warn("Failed to seed the rating aggregate of " + path + ", reading the averages of tenant "
+                         + tenantId + " from the registry for " + SEED_RETRY_INTERVAL + " seconds", e.getCause());
+                seedFailures.put(tenantId, Boolean.TRUE);
+                return registry.getAverageRating(path);
+            }
+            if (invalidations.isStale(tenantId, key.path, aggregate.version)) {
+                // moved or deleted while it was seeded, served once and seeded again on the next read
+                aggregates.asMap().remove(key, aggregate);
+            }
+        }
+        return aggregate.getAverage();
+    }
+
+    /**
+     * Rates the resource as the user and applies the change to its aggregate. Rates of the same user on the same
+     * resource are serialized, so each of them reads the rating it replaces.
+     *
+     * @param registry registry of the user
+     * @param tenantId tenant id of the registry
+     * @param userName user rating the resource
+     * @param path     path of the resource
+     * @param rating   new rating of the user, 0 to remove the rating
+     */
+    public static void rate(Registry registry, int tenantId, String userName, String path, int rating)
+            throws RegistryException {
+        Key key = new Key(tenantId, path);
+        Lock resourceLock = resourceLocks.get(key).readLock();
+        Lock userLock = userLocks.get(Objects.hash(key, userName));
+        resourceLock.lock();
+        try {
+            userLock.lock();
+            try {
+                int oldRating = registry.getRating(path, userName);
+                registry.rateResource(path, rating);
+                update(key, oldRating, rating);
+            } finally {
+                userLock.unlock();
+            }
+        } finally {
+            resourceLock.unlock();
+        }
+    }
+
+    /**
+     * Applies a rating change to the aggregate of the resource if it is in memory. A rating of 0 means the user has
+     * no rating.
+     */
+    private static void update(Key key, int oldRating, int newRating) {
+        if (oldRating == newRating) {
+            return;
+        }
+        Aggregate aggregate = aggregates.getIfPresent(key);
+        if (aggregate == null) {
+            // seeded by the next read, which waits for this rate
+            return;
+        }
+        if (!isRating(oldRating) || !isRating(newRating)) {
+            // not a rating the histogram can hold, let the next read seed it again
+            invalidations.invalidate(key.tenantId, key.path, false);
+            return;
+        }
+        if (oldRating != 0) {
+            aggregate.remove(oldRating);
+        }
+        if (newRating != 0) {
+            aggregate.add(newRating);
+        }
+    }
+
+    /**
+     * Drops the aggregates of the given path and its descendants, their ratings are deleted or moved with them.
+     */
+    public static void invalidate(int tenantId, String path) {
+        if (path == null) {
+            return;
+        }
+        invalidations.invalidate(tenantId, PathInvalidations.normalize(path), true);
+    }
+
+    /**
+     * Stores the ratings query in the config registry of the super tenant and of every tenant. Called when the API is
+     * deployed; a tenant whose query cannot be stored has its averages read from the registry.
+     */
+    public static void registerRatingsQueries() {
+        registerRatingsQuery(MultitenantConstants.SUPER_TENANT_ID);
+        try {
+            for (Tenant tenant : TenantIdResolver.getRealmService().getTenantManager().getAllTenants()) {
+                registerRatingsQuery(tenant.getId());
+            }
+        } catch (UserStoreException | RuntimeException e) {
+            log.warn("Failed to list the tenants, their ratings queries are stored when they are loaded", e);
+        }
+    }
+
+    /**
+     * Stores the ratings query in the config registry of the tenant if it is not there yet. Called when the API is
+     * deployed and when a tenant is loaded.
+     */
+    public static void registerRatingsQuery(int tenantId) {
+        if (queryTenants.contains(tenantId)) {
+            return;
+        }
+        try {
+            Registry systemRegistry = getSystemRegistry(tenantId);
+            if (!systemRegistry.resourceExists(RATINGS_QUERY_PATH)) {
+                Resource resource = systemRegistry.newResource();
+                resource.setContent(RATINGS_QUERY);
+                resource.setMediaType(RegistryConstants.SQL_QUERY_MEDIA_TYPE);
+                resource.addProperty(RegistryConstants.RESULT_TYPE_PROPERTY_NAME,
+                                     RegistryConstants.RATINGS_RESULT_TYPE);
+                systemRegistry.put(RATINGS_QUERY_PATH, resource);
+            }
+            queryTenants.add(tenantId);
+        } catch (RegistryException | RuntimeException e) {
+            log.warn("Failed to store the ratings query of tenant " + tenantId, e);
+        }
+    }
+
+    /**
+     * Counts the raters of the resource per star, after the rates of the resource in progress are applied.
+     */
+    private static Aggregate seed(Key key) throws RegistryException {
+        Lock resourceLock = resourceLocks.get(key).writeLock();
+        resourceLock.lock();
+        try {
+            long version = invalidations.getVersion();
+            Registry systemRegistry = getSystemRegistry(key.tenantId);
+            if (!queryTenants.contains(key.tenantId)) {
+                if (!systemRegistry.resourceExists(RATINGS_QUERY_PATH)) {
+                    throw new RegistryException("Ratings query is not stored for tenant " + key.tenantId);
+                }
+                queryTenants.add(key.tenantId);
+            }
+            int index = key.path.lastIndexOf(RegistryConstants.PATH_SEPARATOR);
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put("2", index > 0 ? key.path.substring(0, index) : RegistryConstants.ROOT_PATH);
+            parameters.put("3", key.path.substring(index + 1));
+            parameters.put("4", key.path);
+            Aggregate aggregate = new Aggregate(version);
+            for (int stars = MIN_RATING; stars <= MAX_RATING; stars++) {
+                parameters.put("1", Integer.toString(stars));
+                Collection ratings = systemRegistry.executeQuery(RATINGS_QUERY_PATH, parameters);
+                for (String rating : ratings.getChildren()) {
+                    // each rating is returned as <path>;ratings:<user name>
+                    if (rating.contains(RATING_USER_SEPARATOR)) {
+                        aggregate.add(stars);
+                    }
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Rating aggregate of " + key.path + " seeded with " + aggregate.getCount() + " ratings");
+            }
+            return aggregate;
+        } finally {
+            resourceLock.unlock();
+        }
+    }
+
+    private static Registry getSystemRegistry(int tenantId) throws RegistryException {
+        RegistryService registryService = UserRegistryCache.getRegistryService();
+        if (registryService == null) {
+            throw new RegistryException("Registry service is not available");
+        }
+        return registryService.getSystemRegistry(tenantId);
+    }
+
+    /**
+     * @return true for a star rating or 0, the values an aggregate can hold
+     */
+    private static boolean isRating(int rating) {
+        return rating == 0 || rating >= MIN_RATING && rating <= MAX_RATING;
+    }
+
+    /**
+     * Rating histogram of a resource. The counters are striped, so concurrent ratings of a popular resource do not
+     * contend; a read may see one update applied to some stars and not yet to others.
+     */
+    private static class Aggregate {
+
+        private final long version;
+        private final LongAdder[] histogram = new LongAdder[MAX_RATING + 1];
+
+        private Aggregate(long version) {
+            this.version = version;
+            for (int i = MIN_RATING; i <= MAX_RATING; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        private void add(int rating) {
+            histogram[rating].increment();
+        }
+
+        private void remove(int rating) {
+            histogram[rating].decrement();
+        }
+
+        private long getCount() {
+            long count = 0;
+            for (int i = MIN_RATING; i <= MAX_RATING; i++) {
+                count += histogram[i].sum();
+            }
+            return count;
+        }
+
+        private float getAverage() {
+            long count = 0;
+            long sum = 0;
+            for (int i = MIN_RATING; i <= MAX_RATING; i++) {
+                long stars = histogram[i].sum();
+                count += stars;
+                sum += stars * i;
+            }
+            return count > 0 ? (float) sum / count : 0;
+        }
+    }
+
+    private static class Key {
+
+        private final int tenantId;
+        private final String path;
+
+        private Key(int tenantId, String path) {
+            this.tenantId = tenantId;
+            this.path = PathInvalidations.normalize(path);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return tenantId == key.tenantId && Objects.equals(path, key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, path);
+        }
+    }
+}
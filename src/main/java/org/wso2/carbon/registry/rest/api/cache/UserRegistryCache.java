@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of the user registry instances, keyed by user name and tenant id.
+ * Building a user registry wires its realm and caches, so an instance is created once per user and reused until
+ * it has been idle for the configured time. The registry service reference is looked up from the OSGi registry only
+ * once. Load statistics (creation count and average creation time) are recorded and exposed through
+ * {@link #getStats()}.
+ */
+public class UserRegistryCache {
+
+    public static final String CACHE_SIZE_PROPERTY = "registry.rest.api.userRegistry.cache.size";
+    public static final String CACHE_IDLE_TIME_PROPERTY = "registry.rest.api.userRegistry.cache.idleTimeSeconds";
+
+    private static final int DEFAULT_CACHE_SIZE = 500;
+    private static final long DEFAULT_CACHE_IDLE_TIME = 600;
+
+    private static Log log = LogFactory.getLog(UserRegistryCache.class);
+
+    private static final CacheSettings settings = new CacheSettings(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE,
+                                                                    CACHE_IDLE_TIME_PROPERTY, DEFAULT_CACHE_IDLE_TIME);
+
+    private static final Cache<Key, UserRegistry> userRegistries = CacheSettings.track(
+            settings.expireAfterAccess().recordStats().build());
+
+    private static volatile RegistryService registryService;
+
+    /**
+     * Returns the user registry of the given user, creating it on first use.
+     *
+     * @param userName tenant aware user name
+     * @param tenantId tenant id of the user
+     * @return user registry instance
+     * @throws RegistryException if the registry service is not available or fails to create the registry
+     */
+    public static UserRegistry getUserRegistry(final String userName, final int tenantId) throws RegistryException {
+        try {
+            return userRegistries.get(new Key(userName, tenantId), () -> createUserRegistry(userName, tenantId));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RegistryException) {
+                throw (RegistryException) e.getCause();
+            }
+            throw new RegistryException("Unable to create the user registry of " + userName, e.getCause());
+        }
+    }
+
+    /**
+     * Returns the registry service, looking it up from the OSGi registry on first use.
+     */
+    public static RegistryService getRegistryService() {
+        RegistryService service = registryService;
+        if (service == null) {
+            service = (RegistryService) PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                    .getOSGiService(RegistryService.class);
+            registryService = service;
+        }
+        return service;
+    }
+
+    /**
+     * Sets the registry service reference, which is then used instead of looking it up from the OSGi registry.
+     */
+    static void setRegistryService(RegistryService service) {
+        registryService = service;
+    }
+
+    /**
+     * Drops the cached registry instances of the given tenant, e.g. when the tenant is deactivated.
+     */
+    public static void invalidate(int tenantId) {
+        userRegistries.asMap().keySet().removeIf(key -> key.tenantId == tenantId);
+    }
+
+    public static void invalidate(String userName, int tenantId) {
+        userRegistries.invalidate(new Key(userName, tenantId));
+    }
+
+    public static void invalidateAll() {
+        userRegistries.invalidateAll();
+        registryService = null;
+    }
+
+    public static CacheStats getStats() {
+        return userRegistries.stats();
+    }
+
+    public static long size() {
+        return userRegistries.size();
+    }
+
+    private static UserRegistry createUserRegistry(String userName, int tenantId) throws RegistryException {
+        RegistryService service = getRegistryService();
+        if (service == null) {
+            throw new RegistryException("Registry service is not available");
+        }
+        long startTime = System.nanoTime();
+        UserRegistry userRegistry = service.getUserRegistry(userName, tenantId);
+        if (log.isDebugEnabled()) {
+            CacheStats stats = userRegistries.stats();
+            log.debug("User registry created for user : " + userName + ", tenant : " + tenantId + " in "
+                    + (System.nanoTime() - startTime) / 1000 + " micro seconds, " + stats.loadCount()
+                    + " registries created with an average of " + (long) stats.averageLoadPenalty() / 1000
+                    + " micro seconds");
+        }
+        return userRegistry;
+    }
+
+    private static class Key {
+
+        private final String userName;
+        private final int tenantId;
+
+        private Key(String userName, int tenantId) {
+            this.userName = userName;
+            this.tenantId = tenantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return tenantId == key.tenantId && userName.equals(key.userName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * userName.hashCode() + tenantId;
+        }
+    }
+}
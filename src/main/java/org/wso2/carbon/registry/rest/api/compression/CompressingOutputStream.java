@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.compression;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which compresses the response body once it reaches the minimum size.
+ * The first bytes are buffered; if the body ends before the minimum size is reached it is written uncompressed,
+ * otherwise the Content-Encoding header is set and the body is compressed. The response headers are changed before any
+ * byte is written to the response. Optionally the compressed body is captured for the {@link PrecompressedCache}.
+ */
+class CompressingOutputStream extends OutputStream {
+
+    private final OutputStream target;
+    private final CompressionCodec codec;
+    private final int minSize;
+    private final MultivaluedMap<String, Object> headers;
+    private final String cacheKey;
+
+    private ByteArrayOutputStream buffer;
+    private OutputStream compressedStream;
+    private ByteArrayOutputStream capture;
+    private boolean closed;
+
+    /**
+     * @param target   response stream
+     * @param codec    codec of the negotiated content coding
+     * @param minSize  minimum size of a body to be compressed
+     * @param headers  response headers
+     * @param cacheKey key of immutable content whose compressed body should be cached, or null
+     */
+    CompressingOutputStream(OutputStream target, CompressionCodec codec, int minSize,
+                            MultivaluedMap<String, Object> headers, String cacheKey) {
+        this.target = target;
+        this.codec = codec;
+        this.minSize = minSize;
+        this.headers = headers;
+        this.cacheKey = cacheKey;
+        this.buffer = new ByteArrayOutputStream(Math.min(minSize, 8192));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (compressedStream != null) {
+            compressedStream.write(bytes, offset, length);
+            return;
+        }
+        buffer.write(bytes, offset, length);
+        if (buffer.size() >= minSize) {
+            startCompression();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // the buffered bytes are kept until the compression is decided, so only a compressed stream is flushed
+        if (compressedStream != null) {
+            compressedStream.flush();
+        }
+    }
+
+    /**
+     * Finishes the body. The response stream itself is left open for the container to close.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (compressedStream == null) {
+            buffer.writeTo(target);
+            target.flush();
+            return;
+        }
+        compressedStream.close();
+        if (capture != null) {
+            PrecompressedCache.put(cacheKey, codec.getEncoding(), capture.toByteArray());
+        }
+    }
+
+    private void startCompression() throws IOException {
+        headers.putSingle(HttpHeaders.CONTENT_ENCODING, codec.getEncoding());
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        OutputStream output = new NonClosingOutputStream(target);
+        if (cacheKey != null) {
+            capture = new ByteArrayOutputStream();
+            output = new CapturingOutputStream(output);
+        }
+        compressedStream = codec.compress(output);
+        buffer.writeTo(compressedStream);
+        buffer = null;
+    }
+
+    /**
+     * Keeps the response stream open when the compressed stream is finished.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Copies the compressed bytes into the capture buffer until the body gets too large to be cached.
+     */
+    private class CapturingOutputStream extends FilterOutputStream {
+
+        CapturingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            if (capture != null) {
+                if (capture.size() + length > PrecompressedCache.getMaxEntryBytes()) {
+                    capture = null;
+                } else {
+                    capture.write(bytes, offset, length);
+                }
+            }
+        }
+    }
+}
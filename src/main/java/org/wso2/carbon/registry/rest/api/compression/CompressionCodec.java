@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A content coding which can be negotiated through the Accept-Encoding header.
+ * gzip is always available; further codecs (eg: br or zstd) can be plugged in by listing their implementation in a
+ * META-INF/services/org.wso2.carbon.registry.rest.api.compression.CompressionCodec file on the classpath.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return name of the content coding as used in the Accept-Encoding and Content-Encoding headers eg: gzip
+     */
+    String getEncoding();
+
+    /**
+     * @param outputStream stream the compressed bytes are written to
+     * @return stream which compresses the bytes written to it, closing it finishes the compressed stream and closes
+     *         the given stream
+     */
+    OutputStream compress(OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.compression;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.cxf.jaxrs.nio.NioWriteEntity;
+import org.apache.cxf.jaxrs.utils.JAXRSUtils;
+import org.apache.cxf.message.Message;
+import org.wso2.carbon.registry.rest.api.handler.RestApiAuthContextFilter;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+
+/**
+ * Compresses response bodies according to the Accept-Encoding header of the request.
+ * Only bodies of the configured media types which reach the minimum size are compressed; partial content, bodies
+ * which already have a content coding and multipart byte ranges are written as they are. Bodies of immutable content
+ * (responses with an entity tag and the immutable Cache-Control directive, such as revisions) are compressed once and
+ * served from the {@link PrecompressedCache} afterwards, to requests of the same tenant only.
+ */
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements WriterInterceptor {
+
+    public static final String MIN_SIZE_PROPERTY = "registry.rest.api.compression.minSize";
+    public static final String MEDIA_TYPES_PROPERTY = "registry.rest.api.compression.mediaTypes";
+
+    private static final int DEFAULT_MIN_SIZE = 1024;
+    private static final String DEFAULT_MEDIA_TYPES = "application/json,application/xml,text/*,application/*+xml,"
+                                                      + "application/*+json,application/x-xsd+xml";
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+    private static final String IMMUTABLE_DIRECTIVE = "immutable";
+
+    private static Log log = LogFactory.getLog(CompressionInterceptor.class);
+
+    private static final int minSize = Integer.getInteger(MIN_SIZE_PROPERTY, DEFAULT_MIN_SIZE);
+    private static final String[] mediaTypes = System.getProperty(MEDIA_TYPES_PROPERTY, DEFAULT_MEDIA_TYPES)
+            .toLowerCase(Locale.ENGLISH).split("\\s*,\\s*");
+    private static final List<CompressionCodec> codecs = loadCodecs();
+
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        // non-blocking writes go to the connection directly and cannot be wrapped, content responses only use them
+        // when willCompress says the body is not compressed
+        if (context.getEntity() instanceof NioWriteEntity || !isCompressible(context.getMediaType())
+            || headers.containsKey(HttpHeaders.CONTENT_ENCODING) || headers.containsKey(CONTENT_RANGE_HEADER)) {
+            context.proceed();
+            return;
+        }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        CompressionCodec codec = negotiate(httpHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        Object contentLength = headers.getFirst(HttpHeaders.CONTENT_LENGTH);
+        if (codec == null || (contentLength != null && Long.parseLong(contentLength.toString()) < minSize)) {
+            context.proceed();
+            return;
+        }
+        String cacheKey = getCacheKey(headers);
+        if (cacheKey != null) {
+            byte[] body = PrecompressedCache.get(cacheKey, codec.getEncoding());
+            if (body != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Precompressed body served for " + cacheKey);
+                }
+                headers.putSingle(HttpHeaders.CONTENT_ENCODING, codec.getEncoding());
+                headers.putSingle(HttpHeaders.CONTENT_LENGTH, body.length);
+                context.getOutputStream().write(body);
+                return;
+            }
+        }
+        CompressingOutputStream compressingStream = new CompressingOutputStream(context.getOutputStream(), codec,
+                                                                                minSize, headers, cacheKey);
+        context.setOutputStream(compressingStream);
+        context.proceed();
+        compressingStream.close();
+    }
+
+    /**
+     * Tells whether a full response body would be compressed, so that it is written as a stream the interceptor can
+     * wrap rather than with non-blocking writes.
+     *
+     * @param mediaType      media type of the body
+     * @param length         length of the body, or -1 if it is not known
+     * @param acceptEncoding Accept-Encoding header of the request, may be null
+     * @return true if the body is compressed
+     */
+    public static boolean willCompress(String mediaType, long length, String acceptEncoding) {
+        if (mediaType == null || (length >= 0 && length < minSize)) {
+            return false;
+        }
+        try {
+            return isCompressible(MediaType.valueOf(mediaType)) && negotiate(acceptEncoding) != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Picks the codec with the highest quality value in the Accept-Encoding header. On equal quality values the
+     * plugged in codecs are preferred over gzip.
+     */
+    private static CompressionCodec negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        CompressionCodec selected = null;
+        float selectedQuality = 0;
+        for (CompressionCodec codec : codecs) {
+            float quality = getQuality(acceptEncoding, codec.getEncoding());
+            if (quality > selectedQuality) {
+                selected = codec;
+                selectedQuality = quality;
+            }
+        }
+        return selected;
+    }
+
+    private static float getQuality(String acceptEncoding, String encoding) {
+        float wildcardQuality = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ENGLISH);
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals(encoding)) {
+                return quality;
+            }
+            if ("*".equals(name)) {
+                wildcardQuality = quality;
+            }
+        }
+        return wildcardQuality;
+    }
+
+    private static boolean isCompressible(MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        String type = mediaType.getType().toLowerCase(Locale.ENGLISH);
+        String subtype = mediaType.getSubtype().toLowerCase(Locale.ENGLISH);
+        for (String allowed : mediaTypes) {
+            int separator = allowed.indexOf('/');
+            if (separator < 0 || !allowed.substring(0, separator).equals(type)) {
+                continue;
+            }
+            String allowedSubtype = allowed.substring(separator + 1);
+            if (allowedSubtype.equals("*") || allowedSubtype.equals(subtype)
+                || (allowedSubtype.startsWith("*+") && subtype.endsWith(allowedSubtype.substring(1)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the precompressed cache key of the response if it is immutable and the tenant of the request is known,
+     * otherwise null
+     */
+    private static String getCacheKey(MultivaluedMap<String, Object> headers) {
+        String entityTag = getImmutableEntityTag(headers);
+        Message message = JAXRSUtils.getCurrentMessage();
+        if (entityTag == null || message == null) {
+            return null;
+        }
+        RestAPIAuthContext authContext = (RestAPIAuthContext) message.getExchange().get(
+                RestApiAuthContextFilter.AUTH_CONTEXT_PROPERTY);
+        return authContext != null ? PrecompressedCache.getKey(authContext.getTenantId(), entityTag) : null;
+    }
+
+    /**
+     * @return the entity tag of the response if the response is immutable, otherwise null
+     */
+    private static String getImmutableEntityTag(MultivaluedMap<String, Object> headers) {
+        Object cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL);
+        Object entityTag = headers.getFirst(HttpHeaders.ETAG);
+        if (cacheControl == null || entityTag == null) {
+            return null;
+        }
+        boolean immutable = cacheControl instanceof CacheControl
+                            ? ((CacheControl) cacheControl).getCacheExtension().containsKey(IMMUTABLE_DIRECTIVE)
+                            : cacheControl.toString().contains(IMMUTABLE_DIRECTIVE);
+        if (!immutable) {
+            return null;
+        }
+        if (entityTag instanceof EntityTag) {
+            EntityTag tag = (EntityTag) entityTag;
+            return tag.isWeak() ? null : tag.getValue();
+        }
+        return entityTag.toString();
+    }
+
+    private static List<CompressionCodec> loadCodecs() {
+        List<CompressionCodec> loadedCodecs = new ArrayList<CompressionCodec>();
+        for (CompressionCodec codec : ServiceLoader.load(CompressionCodec.class,
+                                                         CompressionInterceptor.class.getClassLoader())) {
+            loadedCodecs.add(codec);
+            if (log.isDebugEnabled()) {
+                log.debug("Compression codec loaded for content coding : " + codec.getEncoding());
+            }
+        }
+        loadedCodecs.add(new GzipCompressionCodec());
+        return Collections.unmodifiableList(loadedCodecs);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.compression;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.wso2.carbon.registry.rest.api.cache.CacheSettings;
+
+/**
+ * Cache of compressed response bodies of immutable content, keyed by tenant, entity tag and content coding.
+ * Immutable content (eg: revisions) never changes for a given entity tag, so a body compressed once can be served
+ * to every later request without compressing it again. Entity tags are only unique within a tenant, which is why the
+ * tenant is part of the key. The cache is bounded by the total size of the bodies.
+ */
+public class PrecompressedCache {
+
+    public static final String CACHE_MAX_BYTES_PROPERTY = "registry.rest.api.compression.cache.maxBytes";
+    public static final String CACHE_MAX_ENTRY_BYTES_PROPERTY = "registry.rest.api.compression.cache.maxEntryBytes";
+
+    private static final long DEFAULT_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_CACHE_MAX_ENTRY_BYTES = 4 * 1024 * 1024;
+
+    private static final int maxEntryBytes = Integer.getInteger(CACHE_MAX_ENTRY_BYTES_PROPERTY,
+                                                                DEFAULT_CACHE_MAX_ENTRY_BYTES);
+
+    // bounded by weight rather than entry count, only tracked
+    private static final Cache<String, byte[]> bodies = CacheSettings.track(CacheBuilder.newBuilder()
+            .maximumWeight(Long.getLong(CACHE_MAX_BYTES_PROPERTY, DEFAULT_CACHE_MAX_BYTES))
+            .weigher((String key, byte[] body) -> body.length)
+            .build());
+
+    /**
+     * @param tenantId  tenant of the content
+     * @param entityTag strong entity tag of the content, which identifies the resource and its version
+     * @return key of the content to pass to {@link #get(String, String)} and {@link #put(String, String, byte[])}
+     */
+    public static String getKey(int tenantId, String entityTag) {
+        return tenantId + " " + entityTag;
+    }
+
+    /**
+     * @param key key built by {@link #getKey(int, String)}
+     * @return the compressed body, or null if it is not cached
+     */
+    public static byte[] get(String key, String encoding) {
+        return bodies.getIfPresent(getKey(key, encoding));
+    }
+
+    public static void put(String key, String encoding, byte[] body) {
+        if (body.length <= maxEntryBytes) {
+            bodies.put(getKey(key, encoding), body);
+        }
+    }
+
+    /**
+     * @return maximum size of a body which is kept in the cache
+     */
+    public static int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    private static String getKey(String key, String encoding) {
+        return encoding + " " + key;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.content;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Optional content addressed store for large resource content.
+ * When a blob store directory is configured, content of at least the threshold size is kept in a file named by its
+ * SHA-256 digest under a directory of the tenant, and the registry resource only keeps the digest and the length as
+ * properties. Identical content is stored once; revisions and copies of a resource share the blob of the resource.
+ * Smaller content, and all content when no directory is configured, is stored in the registry as before.
+ * The registry itself only sees empty content for a blob, so registry handlers and clients reading the registry
+ * directly cannot process it. Blobs are therefore only used for the media types listed in the media types property,
+ * which should only name types no registry handler processes (never WSDL, XSD, policies or other governance types).
+ */
+public class BlobStore {
+
+    public static final String DIRECTORY_PROPERTY = "registry.rest.api.blobStore.directory";
+    public static final String THRESHOLD_PROPERTY = "registry.rest.api.blobStore.threshold";
+    public static final String MEDIA_TYPES_PROPERTY = "registry.rest.api.blobStore.mediaTypes";
+
+    /**
+     * Resource properties referring to the blob of a resource.
+     */
+    public static final String BLOB_PROPERTY_PREFIX = "registry.rest.api.blob.";
+    public static final String BLOB_DIGEST_PROPERTY = BLOB_PROPERTY_PREFIX + "sha256";
+    public static final String BLOB_LENGTH_PROPERTY = BLOB_PROPERTY_PREFIX + "length";
+
+    private static final long DEFAULT_THRESHOLD = 1024 * 1024;
+    private static final String DEFAULT_MEDIA_TYPES = "application/octet-stream";
+    private static final int BUFFER_SIZE = 8192;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String SPOOL_DIRECTORY = "tmp";
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static Log log = LogFactory.getLog(BlobStore.class);
+
+    private static final String directory = System.getProperty(DIRECTORY_PROPERTY);
+    // the content below the threshold is buffered in memory, so the threshold is kept within an array
+    private static final int threshold = (int) Math.min(Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD),
+                                                        Integer.MAX_VALUE - 8);
+    private static final Set<String> mediaTypes = new HashSet<String>(Arrays.asList(
+            System.getProperty(MEDIA_TYPES_PROPERTY, DEFAULT_MEDIA_TYPES).toLowerCase(Locale.ENGLISH)
+                    .split("\\s*,\\s*")));
+
+    public static boolean isEnabled() {
+        return directory != null && !directory.isEmpty();
+    }
+
+    /**
+     * Sets the content on the resource and puts it. Content of a blob media type is buffered in memory up to the
+     * threshold; only content reaching the threshold is spooled to disk and kept in the blob store. Any other content
+     * is handed to the registry as a stream.
+     *
+     * @param registry      registry of the user
+     * @param tenantId      tenant the content belongs to
+     * @param resourcePath  path of the resource
+     * @param resource      resource to put, with its media type set
+     * @param contentStream content of the resource
+     */
+    public static void putContent(Registry registry, int tenantId, String resourcePath, Resource resource,
+                                  InputStream contentStream) throws RegistryException, IOException {
+        if (!isEnabled() || !isBlobMediaType(resource.getMediaType())) {
+            resource.setContentStream(contentStream);
+            putInRegistry(registry, resourcePath, resource);
+            return;
+        }
+        // the buffer grows with the content, a small write does not allocate the whole threshold
+        ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(threshold, BUFFER_SIZE));
+        byte[] buffer = new byte[Math.min(threshold, BUFFER_SIZE)];
+        int read;
+        while (head.size() < threshold
+               && (read = contentStream.read(buffer, 0, Math.min(buffer.length, threshold - head.size()))) >= 0) {
+            head.write(buffer, 0, read);
+        }
+        if (head.size() < threshold) {
+            resource.setContent(head.toByteArray());
+            putInRegistry(registry, resourcePath, resource);
+            return;
+        }
+        SpooledContent content = spool(new SequenceInputStream(new ByteArrayInputStream(head.toByteArray()),
+                                                               contentStream));
+        putContent(registry, tenantId, resourcePath, resource, content);
+    }
+
+    /**
+     * Copies the given content to a spool file in the blob store, computing its digest on the way.
+     *
+     * @param content content of a resource
+     * @return the spooled content, to be stored with {@link #putContent}
+     */
+    public static SpooledContent spool(InputStream content) throws IOException {
+        Path spoolDirectory = Files.createDirectories(Paths.get(directory, SPOOL_DIRECTORY));
+        Path file = Files.createTempFile(spoolDirectory, "blob-", ".tmp");
+        try {
+            DigestInputStream digestStream = new DigestInputStream(content, newDigest());
+            long length = Files.copy(digestStream, file, StandardCopyOption.REPLACE_EXISTING);
+            return new SpooledContent(file, Hex.encodeHexString(digestStream.getMessageDigest().digest()), length);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the spooled content on the resource and puts the resource. Content of a blob media type of at least the
+     * threshold size is moved into the blob store and referenced from the resource, other content is stored in the
+     * registry. The spool file is consumed either way.
+     *
+     * @param registry     registry of the user
+     * @param tenantId     tenant the content belongs to
+     * @param resourcePath path of the resource
+     * @param resource     resource to put
+     * @param content      spooled content of the resource
+     */
+    public static void putContent(Registry registry, int tenantId, String resourcePath, Resource resource,
+                                  SpooledContent content) throws RegistryException, IOException {
+        putContent(registry, tenantId, resourcePath, resource, content, false);
+    }
+
+    /**
+     * Like {@link #putContent(Registry, int, String, Resource, SpooledContent)}, but the spool file can be kept if the
+     * put fails, so that it can be retried. A kept spool file is linked into the blob store instead of being moved.
+     *
+     * @param keepOnFailure true to keep the spool file if the content cannot be put
+     */
+    public static void putContent(Registry registry, int tenantId, String resourcePath, Resource resource,
+                                  SpooledContent content, boolean keepOnFailure) throws RegistryException, IOException {
+        boolean stored = false;
+        try {
+            if (content.getLength() >= threshold && isBlobMediaType(resource.getMediaType())) {
+                store(tenantId, content, keepOnFailure);
+                resource.setContent(new byte[0]);
+                resource.setProperty(BLOB_DIGEST_PROPERTY, content.getDigest());
+                resource.setProperty(BLOB_LENGTH_PROPERTY, Long.toString(content.getLength()));
+                registry.put(resourcePath, resource);
+                stored = true;
+                if (log.isDebugEnabled()) {
+                    log.debug("Content of " + resourcePath + " stored as blob " + content.getDigest());
+                }
+                return;
+            }
+            try (InputStream inputStream = Files.newInputStream(content.getFile())) {
+                resource.setContentStream(inputStream);
+                putInRegistry(registry, resourcePath, resource);
+            }
+            stored = true;
+        } finally {
+            if (stored || !keepOnFailure) {
+                Files.deleteIfExists(content.getFile());
+            }
+        }
+    }
+
+    /**
+     * Puts the resource with its content in the registry, dropping any reference to a blob stored before.
+     */
+    private static void putInRegistry(Registry registry, String resourcePath, Resource resource)
+            throws RegistryException {
+        resource.removeProperty(BLOB_DIGEST_PROPERTY);
+        resource.removeProperty(BLOB_LENGTH_PROPERTY);
+        registry.put(resourcePath, resource);
+    }
+
+    private static boolean isBlobMediaType(String mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        int parameters = mediaType.indexOf(';');
+        String type = parameters >= 0 ? mediaType.substring(0, parameters) : mediaType;
+        return mediaTypes.contains(type.trim().toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return the blob file referenced by the resource, or null if the content of the resource is in the registry
+     */
+    public static Path getBlob(Resource resource, int tenantId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String digest = resource.getProperty(BLOB_DIGEST_PROPERTY);
+        if (digest == null || !DIGEST_PATTERN.matcher(digest).matches()) {
+            return null;
+        }
+        return getBlobPath(tenantId, digest);
+    }
+
+    /**
+     * @return length of the blob recorded on the resource, or -1 if it is not recorded
+     */
+    public static long getBlobLength(Resource resource) {
+        String length = resource.getProperty(BLOB_LENGTH_PROPERTY);
+        try {
+            return length == null ? -1 : Long.parseLong(length);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void store(int tenantId, SpooledContent content, boolean keepSource) throws IOException {
+        Path blob = getBlobPath(tenantId, content.getDigest());
+        if (Files.exists(blob)) {
+            // the same content is already stored
+            return;
+        }
+        Files.createDirectories(blob.getParent());
+        if (keepSource) {
+            link(content.getFile(), blob);
+            return;
+        }
+        try {
+            Files.move(content.getFile(), blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(content.getFile(), blob);
+            } catch (FileAlreadyExistsException ignored) {
+                // stored concurrently by another request
+            }
+        } catch (FileAlreadyExistsException ignored) {
+            // stored concurrently by another request
+        }
+    }
+
+    /**
+     * Adds the blob as a second name of the source file, or copies the source if it is on another file system.
+     */
+    private static void link(Path source, Path blob) throws IOException {
+        try {
+            Files.createLink(blob, source);
+            return;
+        } catch (FileAlreadyExistsException ignored) {
+            // stored concurrently by another request
+            return;
+        } catch (UnsupportedOperationException | IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Cannot link " + source + " into the blob store, copying it", e);
+            }
+        }
+        Path spoolDirectory = Files.createDirectories(Paths.get(directory, SPOOL_DIRECTORY));
+        Path copy = Files.createTempFile(spoolDirectory, "blob-", ".tmp");
+        try {
+            Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(copy, blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ignored) {
+            // stored concurrently by another request
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private static Path getBlobPath(int tenantId, String digest) {
+        return Paths.get(directory, Integer.toString(tenantId), digest.substring(0, 2), digest);
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(DIGEST_ALGORITHM + " is not supported", e);
+        }
+    }
+
+    /**
+     * Content spooled to a file, with its SHA-256 digest and length.
+     */
+    public static class SpooledContent {
+
+        private final Path file;
+        private final String digest;
+        private final long length;
+
+        public SpooledContent(Path file, String digest, long length) {
+            this.file = file;
+            this.digest = digest;
+            this.length = length;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        public long getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.content;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A byte range of a Range request header, with inclusive first and last byte positions.
+ */
+public class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    /**
+     * Maximum number of ranges served in a single multipart response, requests with more ranges get the full content.
+     */
+    private static final int MAX_RANGES = 16;
+
+    private final long first;
+    private final long last;
+
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Parses the value of a Range header against the length of the content.
+     *
+     * @param rangeHeader value of the Range header eg: bytes=0-499,1000-,-500
+     * @param length      length of the content in bytes
+     * @return the satisfiable ranges, an empty list if none of the ranges is satisfiable, or null if the header is
+     *         not valid or should be ignored, in which case the full content is served
+     */
+    public static List<ByteRange> parse(String rangeHeader, long length) {
+        if (rangeHeader == null || !rangeHeader.trim().startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        String[] rangeSpecs = rangeHeader.trim().substring(BYTES_UNIT.length()).split(",");
+        if (rangeSpecs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<ByteRange>();
+        try {
+            for (String rangeSpec : rangeSpecs) {
+                String spec = rangeSpec.trim();
+                int separator = spec.indexOf('-');
+                if (separator < 0) {
+                    return null;
+                }
+                String firstPosition = spec.substring(0, separator).trim();
+                String lastPosition = spec.substring(separator + 1).trim();
+                long first;
+                long last;
+                if (firstPosition.isEmpty()) {
+                    // suffix range, the last n bytes of the content
+                    long suffixLength = Long.parseLong(lastPosition);
+                    if (suffixLength <= 0) {
+                        continue;
+                    }
+                    first = Math.max(0, length - suffixLength);
+                    last = length - 1;
+                } else {
+                    first = Long.parseLong(firstPosition);
+                    last = lastPosition.isEmpty() ? length - 1 : Math.min(Long.parseLong(lastPosition), length - 1);
+                    if (lastPosition.length() > 0 && Long.parseLong(lastPosition) < first) {
+                        return null;
+                    }
+                }
+                if (first < 0) {
+                    return null;
+                }
+                if (first < length) {
+                    ranges.add(new ByteRange(first, last));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ranges.isEmpty() ? Collections.<ByteRange>emptyList() : ranges;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * @param totalLength length of the whole content
+     * @return value of the Content-Range header of this range eg: bytes 0-499/1234
+     */
+    public String toContentRange(long totalLength) {
+        return "bytes " + first + "-" + last + "/" + totalLength;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.content;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.cxf.jaxrs.nio.NioWriteEntity;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.rest.api.compression.CompressionInterceptor;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds the download responses of resource content, honouring Range and If-Range requests.
+ * A single satisfiable range is served as 206 Partial Content, several ranges as a multipart/byteranges body and
+ * unsatisfiable ranges as 416. Every response advertises Accept-Ranges: bytes. Partial responses carry their
+ * Content-Length; full responses carry it when the length is known without reading the content.
+ * Content is copied from the content stream in chunks of the configured size and is never held on the heap as a whole.
+ * Full and single range bodies are written with non-blocking writes, one chunk whenever the client can take it, so a
+ * slow client does not hold a worker thread. Full bodies which the {@link CompressionInterceptor} compresses and
+ * multipart bodies are copied with blocking writes instead, transferring content kept in the blob store from its
+ * file. When the cap of the {@link TransferLimiter} is reached, 503 is returned.
+ */
+public class ContentResponses {
+
+    public static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+    public static final String CONTENT_RANGE_HEADER = "Content-Range";
+    public static final String CONTENT_LENGTH_HEADER = "Content-Length";
+    public static final String CONTENT_DISPOSITION_HEADER = "Content-Disposition";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    public static final String CHUNK_SIZE_PROPERTY = "registry.rest.api.content.chunkSize";
+
+    private static final String BYTES_UNIT = "bytes";
+    private static final String CRLF = "\r\n";
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final String RETRY_AFTER = "1";
+
+    private static final int chunkSize = Integer.getInteger(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE);
+
+    private static Log log = LogFactory.getLog(ContentResponses.class);
+
+    /**
+     * @param content        content of the resource
+     * @param rangeHeader    value of the Range header, may be null
+     * @param ifRange        value of the If-Range header, may be null
+     * @param fileName       file name of the Content-Disposition header, or null to omit the header
+     * @param entityTag      strong entity tag of the content, or null if the content has no entity tag
+     * @param acceptEncoding value of the Accept-Encoding header, may be null
+     * @return response builder with the full content or the requested ranges
+     */
+    public static Response.ResponseBuilder build(ResourceContent content, String rangeHeader, String ifRange,
+                                                 String fileName, EntityTag entityTag, String acceptEncoding)
+            throws RegistryException, IOException {
+        String mediaType = content.getResource().getMediaType();
+        List<ByteRange> ranges = null;
+        long length = content.getKnownLength();
+        if (rangeHeader != null && isRangeApplicable(content, ifRange, entityTag)) {
+            length = content.getLength();
+            ranges = ByteRange.parse(rangeHeader, length);
+        }
+        if (ranges != null && ranges.isEmpty()) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(CONTENT_RANGE_HEADER, BYTES_UNIT + " */" + length)
+                    .header(ACCEPT_RANGES_HEADER, BYTES_UNIT);
+        }
+        if (TransferLimiter.isSaturated()) {
+            log.warn("Too many content transfers in flight, download of " + content.getResource().getPath()
+                     + " rejected");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).header(RETRY_AFTER_HEADER, RETRY_AFTER);
+        }
+        Response.ResponseBuilder builder;
+        if (ranges == null) {
+            if (CompressionInterceptor.willCompress(mediaType, length, acceptEncoding)) {
+                // compressed by the interceptor, or served from its cache of precompressed bodies
+                builder = Response.ok(writeStream(content));
+            } else {
+                builder = Response.ok(write(content, 0, Long.MAX_VALUE));
+            }
+            if (length >= 0) {
+                builder.header(CONTENT_LENGTH_HEADER, length);
+            }
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            builder = Response.status(Response.Status.PARTIAL_CONTENT)
+                    .entity(write(content, range.getFirst(), range.getLength()))
+                    .header(CONTENT_RANGE_HEADER, range.toContentRange(length))
+                    .header(CONTENT_LENGTH_HEADER, range.getLength());
+        } else {
+            String boundary = UUID.randomUUID().toString();
+            builder = Response.status(Response.Status.PARTIAL_CONTENT)
+                    .entity(writeMultipart(content, ranges, mediaType, boundary))
+                    .header(CONTENT_LENGTH_HEADER, getMultipartLength(ranges, length, mediaType, boundary));
+            mediaType = "multipart/byteranges; boundary=" + boundary;
+        }
+        builder.type(mediaType).header(ACCEPT_RANGES_HEADER, BYTES_UNIT);
+        if (content.getResource().getLastModified() != null) {
+            builder.lastModified(content.getResource().getLastModified());
+        }
+        if (entityTag != null) {
+            builder.tag(entityTag);
+        }
+        if (fileName != null) {
+            builder.header(CONTENT_DISPOSITION_HEADER, getContentDisposition(fileName));
+        }
+        return builder;
+    }
+
+    /**
+     * Builds the value of a Content-Disposition header offering the content as an attachment. The file name is given
+     * quoted, with characters outside printable ASCII replaced, for older clients, and percent encoded as UTF-8 in
+     * the extended parameter of RFC 6266 for the others.
+     *
+     * @param fileName file name of the attachment
+     * @return value of the Content-Disposition header
+     */
+    public static String getContentDisposition(String fileName) {
+        StringBuilder quoted = new StringBuilder();
+        StringBuilder encoded = new StringBuilder();
+        for (char c : fileName.toCharArray()) {
+            quoted.append(c < 0x20 || c > 0x7e || c == '"' || c == '\\' ? '_' : c);
+        }
+        for (byte b : fileName.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || "!#$&+-.^_`|~".indexOf(c) >= 0) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return "attachment; filename=\"" + quoted + "\"; filename*=UTF-8''" + encoded;
+    }
+
+    /**
+     * A range request is only served if the If-Range validator, when given, still matches the resource. An entity
+     * tag validator must match strongly, a date validator must equal the last modified time.
+     */
+    private static boolean isRangeApplicable(ResourceContent content, String ifRange, EntityTag entityTag) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return entityTag != null && ifRange.trim().equals("\"" + entityTag.getValue() + "\"");
+        }
+        Date lastModified = content.getResource().getLastModified();
+        if (lastModified == null || ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            long ifRangeTime = ZonedDateTime.parse(ifRange.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            return ifRangeTime / 1000 == lastModified.getTime() / 1000;
+        } catch (DateTimeParseException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid If-Range header : " + ifRange);
+            }
+            return false;
+        }
+    }
+
+    private static NioWriteEntity write(ResourceContent content, long offset, long count) {
+        ContentWriter writer = new ContentWriter(content, offset, count, chunkSize);
+        return new NioWriteEntity(writer, writer);
+    }
+
+    private static StreamingOutput writeStream(final ResourceContent content) {
+        return outputStream -> {
+            TransferLimiter.begin();
+            try {
+                copy(content, 0, Long.MAX_VALUE, outputStream);
+            } finally {
+                TransferLimiter.end();
+            }
+        };
+    }
+
+    private static StreamingOutput writeMultipart(final ResourceContent content, final List<ByteRange> ranges,
+                                                  final String mediaType, final String boundary) {
+        return outputStream -> {
+            TransferLimiter.begin();
+            try {
+                writeParts(content, ranges, mediaType, boundary, outputStream);
+            } finally {
+                TransferLimiter.end();
+            }
+        };
+    }
+
+    private static void writeParts(ResourceContent content, List<ByteRange> ranges, String mediaType, String boundary,
+                                   OutputStream outputStream) throws IOException {
+        long length = getLength(content);
+        for (ByteRange range : ranges) {
+            outputStream.write(getPartHeader(range, length, mediaType, boundary));
+            copy(content, range.getFirst(), range.getLength(), outputStream);
+        }
+        outputStream.write((CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long getMultipartLength(List<ByteRange> ranges, long length, String mediaType, String boundary) {
+        long multipartLength = (CRLF + "--" + boundary + "--" + CRLF).length();
+        for (ByteRange range : ranges) {
+            multipartLength += getPartHeader(range, length, mediaType, boundary).length + range.getLength();
+        }
+        return multipartLength;
+    }
+
+    private static byte[] getPartHeader(ByteRange range, long length, String mediaType, String boundary) {
+        StringBuilder header = new StringBuilder();
+        header.append(CRLF).append("--").append(boundary).append(CRLF);
+        if (mediaType != null) {
+            header.append("Content-Type: ").append(mediaType).append(CRLF);
+        }
+        header.append(CONTENT_RANGE_HEADER).append(": ").append(range.toContentRange(length)).append(CRLF).append(CRLF);
+        return header.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void copy(ResourceContent content, long offset, long count, OutputStream outputStream)
+            throws IOException {
+        if (content.transferTo(offset, count, outputStream)) {
+            return;
+        }
+        try (InputStream inputStream = content.open(offset)) {
+            byte[] buffer = new byte[chunkSize];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                outputStream.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } catch (RegistryException e) {
+            throw new IOException("Failed to read the content of " + content.getResource().getPath(), e);
+        }
+    }
+
+    private static long getLength(ResourceContent content) throws IOException {
+        try {
+            return content.getLength();
+        } catch (RegistryException e) {
+            throw new IOException("Failed to read the content of " + content.getResource().getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.content;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.cxf.jaxrs.nio.NioErrorHandler;
+import org.apache.cxf.jaxrs.nio.NioOutputStream;
+import org.apache.cxf.jaxrs.nio.NioWriteHandler;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Writes a part of the resource content one chunk per call.
+ * Used as the handler of a non-blocking write entity: the container calls it whenever the client connection can take
+ * more bytes, so no worker thread waits on a slow client in between. Without asynchronous servlet support the
+ * handler is simply called in a loop.
+ */
+class ContentWriter implements NioWriteHandler, NioErrorHandler {
+
+    private static Log log = LogFactory.getLog(ContentWriter.class);
+
+    private final ResourceContent content;
+    private final long offset;
+    private final int chunkSize;
+    private long remaining;
+    private InputStream inputStream;
+    private byte[] buffer;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * @param content   content of the resource
+     * @param offset    offset of the first byte to write
+     * @param count     number of bytes to write, Long.MAX_VALUE for the rest of the content
+     * @param chunkSize number of bytes written per call
+     */
+    ContentWriter(ResourceContent content, long offset, long count, int chunkSize) {
+        this.content = content;
+        this.offset = offset;
+        this.remaining = count;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return true if there is more content to write
+     */
+    @Override
+    public synchronized boolean write(NioOutputStream outputStream) throws IOException {
+        if (finished) {
+            return false;
+        }
+        try {
+            if (!started) {
+                started = true;
+                TransferLimiter.begin();
+                buffer = new byte[chunkSize];
+                inputStream = content.open(offset);
+            }
+            int read = remaining > 0 ? inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining)) : -1;
+            if (read < 0) {
+                finish();
+                return false;
+            }
+            outputStream.write(buffer, 0, read);
+            remaining -= read;
+            return true;
+        } catch (RegistryException e) {
+            finish();
+            throw new IOException("Failed to read the content of " + content.getResource().getPath(), e);
+        } catch (IOException | RuntimeException e) {
+            finish();
+            throw e;
+        }
+    }
+
+    @Override
+    public void error(Throwable throwable) throws Throwable {
+        if (log.isDebugEnabled()) {
+            log.debug("Transfer of the content of " + content.getResource().getPath() + " failed", throwable);
+        }
+        synchronized (this) {
+            finish();
+        }
+        throw throwable;
+    }
+
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        buffer = null;
+        if (started) {
+            TransferLimiter.end();
+        }
+        if (inputStream != null) {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                log.warn("Failed to close the content stream of " + content.getResource().getPath(), e);
+            }
+        }
+    }
+}
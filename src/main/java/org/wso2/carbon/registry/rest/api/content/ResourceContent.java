@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.content;
+
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Gives access to the content of a registry resource by length and offset.
+ * Content kept in the {@link BlobStore} is read from its file, positioned directly at the requested offset. Other
+ * content is read from the content stream of the resource. Only when its length is asked for, which range requests
+ * do, is it taken as the bytes or text the registry loaded with the resource; the bytes are then also used to serve
+ * the ranges, so the content is never streamed just to be measured. Full reads never hold the content on the heap
+ * on behalf of this class.
+ */
+public class ResourceContent {
+
+    private final Resource resource;
+    private final Path blob;
+    private long length = -1;
+    private byte[] contentBytes;
+
+    /**
+     * @param resource resource with its content
+     * @param tenantId tenant of the resource, used to locate its blob
+     */
+    public ResourceContent(Resource resource, int tenantId) {
+        this.resource = resource;
+        this.blob = BlobStore.getBlob(resource, tenantId);
+        if (blob != null) {
+            length = BlobStore.getBlobLength(resource);
+        }
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * @return length of the content in bytes if it is known without reading the content, otherwise -1
+     */
+    public long getKnownLength() {
+        return length;
+    }
+
+    /**
+     * Returns the length of the content. Content which is not in the blob store is taken as loaded by the registry,
+     * unless it is neither bytes nor text, which only happens for resources of custom implementations and is counted
+     * from its content stream.
+     *
+     * @return length of the content in bytes
+     */
+    public long getLength() throws RegistryException, IOException {
+        if (length < 0) {
+            byte[] bytes = getContentBytes();
+            if (bytes != null) {
+                length = bytes.length;
+                return length;
+            }
+            long count = 0;
+            try (InputStream inputStream = open(0)) {
+                long skipped;
+                while ((skipped = inputStream.skip(Long.MAX_VALUE)) > 0 || inputStream.read() >= 0) {
+                    count += skipped > 0 ? skipped : 1;
+                }
+            }
+            length = count;
+        }
+        return length;
+    }
+
+    /**
+     * Opens the content positioned at the given offset. Content which is not in the blob store is streamed from the
+     * resource, unless {@link #getLength()} has already taken it as bytes.
+     *
+     * @param offset number of bytes to skip from the start of the content
+     * @return stream of the content starting at the offset
+     */
+    public InputStream open(long offset) throws RegistryException, IOException {
+        if (blob != null) {
+            FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ);
+            channel.position(offset);
+            return Channels.newInputStream(channel);
+        }
+        byte[] bytes = contentBytes;
+        if (bytes != null) {
+            if (offset > bytes.length) {
+                throw new EOFException("Content ended before offset " + offset);
+            }
+            return new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+        }
+        InputStream inputStream = resource.getContentStream();
+        if (inputStream == null) {
+            inputStream = new ByteArrayInputStream(new byte[0]);
+        }
+        long remaining = offset;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() < 0) {
+                    inputStream.close();
+                    throw new EOFException("Content ended before offset " + offset);
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        return inputStream;
+    }
+
+    /**
+     * @return the content as the registry loaded it with the resource, or null if it is not held as bytes or text
+     */
+    private byte[] getContentBytes() throws RegistryException {
+        if (contentBytes == null) {
+            Object content = resource.getContent();
+            if (content == null) {
+                contentBytes = new byte[0];
+            } else if (content instanceof byte[]) {
+                contentBytes = (byte[]) content;
+            } else if (content instanceof String) {
+                contentBytes = ((String) content).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return contentBytes;
+    }
+
+    /**
+     * Copies a part of the content kept in the blob store to the output stream. The servlet output stream has no
+     * channel of its own, so this is a copy through the small buffer of the wrapping channel rather than a zero copy
+     * transfer; it spares opening a stream over the file and skipping to the offset.
+     *
+     * @param offset       offset of the first byte
+     * @param count        number of bytes to transfer
+     * @param outputStream stream to write to
+     * @return false if the content is not kept in the blob store and has to be copied from {@link #open(long)}
+     */
+    public boolean transferTo(long offset, long count, OutputStream outputStream) throws IOException {
+        if (blob == null) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = offset;
+            long end = Math.min(channel.size(), offset + count < 0 ? Long.MAX_VALUE : offset + count);
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+        }
+        return true;
+    }
+}
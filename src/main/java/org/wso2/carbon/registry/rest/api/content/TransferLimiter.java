@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.content;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of content transfers in flight.
+ * The cap is checked when a download response is built, so a saturated server answers 503 instead of queueing more
+ * slow transfers; a transfer is counted from its first write until it completes or fails. As the check and the count
+ * are not atomic together, a burst may briefly exceed the cap by the number of concurrently built responses.
+ */
+public class TransferLimiter {
+
+    public static final String MAX_TRANSFERS_PROPERTY = "registry.rest.api.download.maxConcurrentTransfers";
+
+    private static final int DEFAULT_MAX_TRANSFERS = 256;
+
+    private static final int maxTransfers = Integer.getInteger(MAX_TRANSFERS_PROPERTY, DEFAULT_MAX_TRANSFERS);
+    private static final AtomicInteger transfers = new AtomicInteger();
+
+    /**
+     * @return true if no new transfer should be started
+     */
+    public static boolean isSaturated() {
+        return transfers.get() >= maxTransfers;
+    }
+
+    public static void begin() {
+        transfers.incrementAndGet();
+    }
+
+    public static void end() {
+        transfers.decrementAndGet();
+    }
+
+    public static int getTransfers() {
+        return transfers.get();
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.copy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.registry.core.Association;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.Tag;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.rest.api.job.Job;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies a collection subtree in parallel.
+ * The source subtree is walked first, a page of children at a time, creating the target collections on the way, so
+ * the skeleton of the copy exists before any resource is written. The resources are then copied by a fork/join pool,
+ * which splits them into batches; each batch is copied in one registry transaction. A resource is copied with its
+ * content, description, properties, tags and associations; associations between resources of the subtree are
+ * pointed to the copies. Comments, ratings and versions are not copied.
+ * The pool is shared by all copies. Its parallelism is not derived from the registry database pool, which this API
+ * cannot see; it must be set below the maximum active connections of that pool, leaving room for the requests served
+ * meanwhile, or the copy workers wait for connections.
+ */
+public class SubtreeCopier {
+
+    public static final String PARALLELISM_PROPERTY = "registry.rest.api.copy.parallelism";
+    public static final String BATCH_SIZE_PROPERTY = "registry.rest.api.copy.batchSize";
+
+    private static final int DEFAULT_PARALLELISM = 8;
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int PAGE_SIZE = 1000;
+
+    private static Log log = LogFactory.getLog(SubtreeCopier.class);
+
+    private static final int batchSize = Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE);
+    private static final ForkJoinPool pool = new ForkJoinPool(
+            Integer.getInteger(PARALLELISM_PROPERTY, DEFAULT_PARALLELISM));
+
+    private final Registry registry;
+    private final int tenantId;
+    private final String tenantDomain;
+    private final String userName;
+    private final Job job;
+    private final List<String> resourcePaths = new ArrayList<String>();
+    private final AtomicLong copied = new AtomicLong();
+    private String sourceRoot;
+    private String targetRoot;
+
+    /**
+     * @param registry registry of the user, used from the pool threads
+     * @param job      job reporting the progress and checked for cancellation, may be null
+     */
+    public SubtreeCopier(Registry registry, Job job) {
+        CarbonContext carbonContext = CarbonContext.getThreadLocalCarbonContext();
+        this.registry = registry;
+        this.tenantId = carbonContext.getTenantId();
+        this.tenantDomain = carbonContext.getTenantDomain();
+        this.userName = carbonContext.getUsername();
+        this.job = job;
+    }
+
+    /**
+     * Stops the pool of all copies. Called when the webapp is undeployed.
+     */
+    public static void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @return true if the target path is the source path or lies inside it, which cannot be copied
+     */
+    public static boolean isInside(String sourcePath, String targetPath) {
+        return targetPath.equals(sourcePath) || targetPath.startsWith(sourcePath.endsWith("/") ? sourcePath
+                                                                                              : sourcePath + "/");
+    }
+
+    /**
+     * Copies the collection at the source path to the target path. Resources already at the target are replaced.
+     *
+     * @return number of resources copied, not counting collections
+     * @throws RegistryException     if a batch fails; the batches committed before stay copied
+     * @throws CancellationException if the job is cancelled
+     */
+    public long copy(String sourcePath, String targetPath) throws RegistryException {
+        sourceRoot = sourcePath;
+        targetRoot = targetPath;
+        long startTime = System.currentTimeMillis();
+        copyCollections(sourcePath);
+        reportProgress();
+        try {
+            pool.invoke(new CopyTask(0, resourcePaths.size()));
+        } catch (CopyException e) {
+            throw e.getRegistryException();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(resourcePaths.size() + " resources of " + sourcePath + " copied to " + targetPath + " in "
+                      + (System.currentTimeMillis() - startTime) + " ms");
+        }
+        return resourcePaths.size();
+    }
+
+    /**
+     * Walks the source subtree, creating the target collections and collecting the resource paths.
+     */
+    private void copyCollections(String collectionPath) throws RegistryException {
+        checkCancelled();
+        Resource source = registry.getMetaData(collectionPath);
+        Collection target = registry.newCollection();
+        copyMetadata(source, target);
+        String targetPath = getTargetPath(collectionPath);
+        registry.put(targetPath, target);
+        copyTags(collectionPath, targetPath);
+        int start = 0;
+        String[] children;
+        do {
+            children = ((Collection) registry.get(collectionPath, start, PAGE_SIZE)).getChildren();
+            for (String childPath : children) {
+                Resource child;
+                try {
+                    child = registry.getMetaData(childPath);
+                } catch (ResourceNotFoundException e) {
+                    // deleted while the subtree is copied
+                    continue;
+                }
+                if (child instanceof Collection) {
+                    copyCollections(childPath);
+                } else {
+                    resourcePaths.add(childPath);
+                }
+            }
+            start += PAGE_SIZE;
+        } while (children.length >= PAGE_SIZE);
+    }
+
+    /**
+     * Copies a batch of resources in one transaction, in a tenant flow of the user.
+     */
+    private void copyBatch(int from, int to) throws RegistryException {
+        checkCancelled();
+        PrivilegedCarbonContext.startTenantFlow();
+        try {
+            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+            carbonContext.setTenantId(tenantId);
+            carbonContext.setTenantDomain(tenantDomain);
+            carbonContext.setUsername(userName);
+            boolean committed = false;
+            registry.beginTransaction();
+            try {
+                for (int i = from; i < to; i++) {
+                    copyResource(resourcePaths.get(i));
+                }
+                registry.commitTransaction();
+                committed = true;
+            } finally {
+                if (!committed) {
+                    registry.rollbackTransaction();
+                }
+            }
+            copied.addAndGet(to - from);
+            reportProgress();
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    private void copyResource(String sourcePath) throws RegistryException {
+        Resource source;
+        try {
+            source = registry.get(sourcePath);
+        } catch (ResourceNotFoundException e) {
+            return;
+        }
+        String targetPath = getTargetPath(sourcePath);
+        Resource target = registry.newResource();
+        target.setMediaType(source.getMediaType());
+        copyMetadata(source, target);
+        try (InputStream content = source.getContentStream()) {
+            if (content != null) {
+                target.setContentStream(content);
+            }
+            registry.put(targetPath, target);
+        } catch (IOException e) {
+            throw new RegistryException("Failed to read the content of " + sourcePath, e);
+        }
+        copyTags(sourcePath, targetPath);
+        for (Association association : registry.getAllAssociations(sourcePath)) {
+            if (!sourcePath.equals(association.getSourcePath())) {
+                // associations pointing to the resource are copied with their source
+                continue;
+            }
+            String destination = association.getDestinationPath();
+            if (isInside(sourceRoot, destination)) {
+                destination = getTargetPath(destination);
+            }
+            registry.addAssociation(targetPath, destination, association.getAssociationType());
+        }
+    }
+
+    /**
+     * Copies the description and the properties. Blob store references are copied as well, the copy shares the
+     * content addressed blob of the source.
+     */
+    private static void copyMetadata(Resource source, Resource target) {
+        target.setDescription(source.getDescription());
+        Properties properties = source.getProperties();
+        if (properties != null) {
+            for (String name : properties.stringPropertyNames()) {
+                target.setProperty(name, source.getPropertyValues(name));
+            }
+        }
+    }
+
+    private void copyTags(String sourcePath, String targetPath) throws RegistryException {
+        for (Tag tag : registry.getTags(sourcePath)) {
+            registry.applyTag(targetPath, tag.getTagName());
+        }
+    }
+
+    private String getTargetPath(String sourcePath) {
+        return targetRoot + sourcePath.substring(sourceRoot.length());
+    }
+
+    private void checkCancelled() {
+        if (job != null && job.isCancelRequested()) {
+            throw new CancellationException("Copy cancelled after " + copied.get() + " resources");
+        }
+    }
+
+    private void reportProgress() {
+        if (job != null) {
+            job.setProgress(copied.get(), resourcePaths.size());
+        }
+    }
+
+    /**
+     * Splits the resources into halves until a half fits into a batch.
+     */
+    private class CopyTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        private CopyTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                try {
+                    copyBatch(from, to);
+                } catch (RegistryException e) {
+                    throw new CopyException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CopyTask(from, middle), new CopyTask(middle, to));
+        }
+    }
+
+    /**
+     * Carries a registry exception of a batch out of the fork/join pool.
+     */
+    private static class CopyException extends RuntimeException {
+
+        private CopyException(RegistryException cause) {
+            super(cause);
+        }
+
+        private RegistryException getRegistryException() {
+            // the pool may rethrow a copy of the exception, wrapping the original one
+            Throwable cause = getCause();
+            while (cause != null && !(cause instanceof RegistryException)) {
+                cause = cause.getCause();
+            }
+            return cause != null ? (RegistryException) cause : new RegistryException(getMessage(), this);
+        }
+    }
+}
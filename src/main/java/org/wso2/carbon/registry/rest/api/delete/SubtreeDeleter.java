@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.delete;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.rest.api.cache.MetaDataCache;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
+import org.wso2.carbon.registry.rest.api.job.Job;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Deletes a collection subtree bottom-up in small transactions instead of one long one.
+ * The subtree is walked first, a page of children at a time, collecting the paths so that every collection comes
+ * after its children. The paths are then deleted in batches, each batch in its own registry transaction, so the
+ * locks are held only for a batch and other writers get their turn in between. The batches are throttled by a rate
+ * limiter shared by all deletes, which caps the number of paths deleted per second on the node.
+ */
+public class SubtreeDeleter {
+
+    public static final String BATCH_SIZE_PROPERTY = "registry.rest.api.delete.batchSize";
+    public static final String RATE_PROPERTY = "registry.rest.api.delete.rate";
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_RATE = 500;
+    private static final int PAGE_SIZE = 1000;
+
+    private static Log log = LogFactory.getLog(SubtreeDeleter.class);
+
+    private static final int batchSize = Math.max(1, Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
+    // paths deleted per second by all the deletes together, not throttled if not positive
+    private static final int rate = Integer.getInteger(RATE_PROPERTY, DEFAULT_RATE);
+    private static final RateLimiter rateLimiter = rate > 0 ? RateLimiter.create(rate) : null;
+
+    private final Registry registry;
+    private final int tenantId;
+    private final Job job;
+    private final List<String> paths = new ArrayList<String>();
+    private long deleted;
+
+    /**
+     * @param registry registry of the user
+     * @param job      job reporting the progress and checked for cancellation, may be null
+     */
+    public SubtreeDeleter(Registry registry, Job job) {
+        this.registry = registry;
+        this.tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        this.job = job;
+    }
+
+    /**
+     * Deletes the collection at the given path together with everything below it.
+     *
+     * @return number of paths deleted, collections included
+     * @throws RegistryException     if a batch fails; the batches committed before stay deleted
+     * @throws CancellationException if the job is cancelled
+     */
+    public long delete(String collectionPath) throws RegistryException {
+        long startTime = System.currentTimeMillis();
+        try {
+            collectPaths(collectionPath);
+            reportProgress();
+            for (int from = 0; from < paths.size(); from += batchSize) {
+                checkCancelled();
+                int to = Math.min(from + batchSize, paths.size());
+                if (rateLimiter != null) {
+                    rateLimiter.acquire(to - from);
+                }
+                deleteBatch(from, to);
+                MetaDataCache.invalidate(tenantId, collectionPath);
+                reportProgress();
+            }
+        } finally {
+            MetaDataCache.invalidate(tenantId, collectionPath);
+            RatingAggregateStore.invalidate(tenantId, collectionPath);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(deleted + " paths of " + collectionPath + " deleted in "
+                      + (System.currentTimeMillis() - startTime) + " ms");
+        }
+        return deleted;
+    }
+
+    /**
+     * Walks the subtree, adding the children of a collection before the collection itself.
+     */
+    private void collectPaths(String collectionPath) throws RegistryException {
+        checkCancelled();
+        int start = 0;
+        String[] children;
+        do {
+            children = ((Collection) registry.get(collectionPath, start, PAGE_SIZE)).getChildren();
+            for (String childPath : children) {
+                Resource child;
+                try {
+                    child = registry.getMetaData(childPath);
+                } catch (ResourceNotFoundException e) {
+                    // deleted while the subtree is walked
+                    continue;
+                }
+                if (child instanceof Collection) {
+                    collectPaths(childPath);
+                } else {
+                    paths.add(childPath);
+                }
+            }
+            start += PAGE_SIZE;
+        } while (children.length >= PAGE_SIZE);
+        paths.add(collectionPath);
+    }
+
+    private void deleteBatch(int from, int to) throws RegistryException {
+        boolean committed = false;
+        registry.beginTransaction();
+        try {
+            for (int i = from; i < to; i++) {
+                String path = paths.get(i);
+                // a path may have been deleted by someone else since the walk
+                if (registry.resourceExists(path)) {
+                    registry.delete(path);
+                }
+            }
+            registry.commitTransaction();
+            committed = true;
+        } finally {
+            if (!committed) {
+                registry.rollbackTransaction();
+            }
+        }
+        deleted += to - from;
+    }
+
+    private void checkCancelled() {
+        if (job != null && job.isCancelRequested()) {
+            throw new CancellationException("Delete cancelled after " + deleted + " paths");
+        }
+    }
+
+    private void reportProgress() {
+        if (job != null) {
+            job.setProgress(deleted, paths.size());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.handler;
+
+import com.google.common.cache.Cache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.rest.api.HashUtils;
+import org.wso2.carbon.registry.rest.api.cache.CacheSettings;
+import java.security.SecureRandom;
+
+/**
+ * Short lived cache of Basic auth results, so that repeated requests with the same credentials do not go to the
+ * user store every time.
+ * Entries are keyed by a salted SHA-256 hash of username and password; the salt is generated per JVM and the
+ * plain text password is never kept. Successful authentications are cached for the configured TTL, failed ones
+ * only for a small negative window which throttles repeated bad credentials without locking out a corrected one.
+ * Password changes and removed users are reported by the {@link CredentialCacheListener} and drop the results of
+ * the user at once. Changes the user store makes without going through the user store manager of this server, e.g.
+ * in an LDAP shared with other systems, are not reported; old credentials keep authenticating until their entry
+ * expires, which is at most the TTL of 15 seconds by default. Keep the TTL short for that reason.
+ */
+public class BasicAuthCredentialCache {
+
+    public static final String CACHE_SIZE_PROPERTY = "registry.rest.api.basicauth.cache.size";
+    public static final String CACHE_TTL_PROPERTY = "registry.rest.api.basicauth.cache.ttlSeconds";
+    public static final String NEGATIVE_CACHE_TTL_PROPERTY = "registry.rest.api.basicauth.cache.negativeTTLSeconds";
+
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final long DEFAULT_CACHE_TTL = 15;
+    private static final long DEFAULT_NEGATIVE_CACHE_TTL = 5;
+
+    private static Log log = LogFactory.getLog(BasicAuthCredentialCache.class);
+
+    private static final byte[] salt = new byte[16];
+
+    static {
+        new SecureRandom().nextBytes(salt);
+    }
+
+    private static final Cache<String, AuthenticatedUser> authenticatedUsers = new CacheSettings(
+            CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE, CACHE_TTL_PROPERTY, DEFAULT_CACHE_TTL).build();
+
+    private static final Cache<String, String> failedAttempts = new CacheSettings(
+            CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE, NEGATIVE_CACHE_TTL_PROPERTY, DEFAULT_NEGATIVE_CACHE_TTL).build();
+
+    /**
+     * Builds the cache key of the given credentials.
+     *
+     * @param userName user name as sent in the Basic auth header
+     * @param password password as sent in the Basic auth header
+     * @return salted hash of the credentials
+     */
+    public static String getKey(String userName, String password) {
+        return HashUtils.sha256Hex(salt, userName, password);
+    }
+
+    /**
+     * @param key cache key of the credentials
+     * @return the authenticated user, or null if the credentials were not authenticated recently
+     */
+    public static AuthenticatedUser getAuthenticatedUser(String key) {
+        return authenticatedUsers.getIfPresent(key);
+    }
+
+    /**
+     * @param key cache key of the credentials
+     * @return true if the credentials failed to authenticate within the negative window
+     */
+    public static boolean isRecentlyFailed(String key) {
+        return failedAttempts.getIfPresent(key) != null;
+    }
+
+    public static void putAuthenticatedUser(String key, AuthenticatedUser user) {
+        failedAttempts.invalidate(key);
+        authenticatedUsers.put(key, user);
+    }
+
+    public static void putFailedAttempt(String key, String userName) {
+        failedAttempts.put(key, userName);
+    }
+
+    /**
+     * Drops every cached result of the given user, after a password change or when the user is removed.
+     *
+     * @param tenantId tenant of the user
+     * @param userName tenant aware user name, with or without its user store domain
+     */
+    public static void invalidate(int tenantId, String userName) {
+        authenticatedUsers.asMap().values().removeIf(user -> user.getTenantId() == tenantId
+                && isSameUser(user.getTenantAwareUserName(), userName));
+        failedAttempts.asMap().values().removeIf(failedUserName -> failedUserName.regionMatches(
+                true, 0, userName + "@", 0, userName.length() + 1));
+        if (log.isDebugEnabled()) {
+            log.debug("Cached Basic authentication results invalidated for user : " + userName + ", tenant : "
+                    + tenantId);
+        }
+    }
+
+    /**
+     * Drops the successful authentications of every user of the tenant, e.g. when the tenant is deactivated.
+     */
+    public static void invalidate(int tenantId) {
+        authenticatedUsers.asMap().values().removeIf(user -> user.getTenantId() == tenantId);
+    }
+
+    /**
+     * User names are compared ignoring case and the user store domain, dropping a result too many is harmless.
+     */
+    private static boolean isSameUser(String cachedUserName, String userName) {
+        return cachedUserName.equalsIgnoreCase(userName)
+               || cachedUserName.regionMatches(true, cachedUserName.length() - userName.length() - 1, "/" + userName,
+                                               0, userName.length() + 1);
+    }
+
+    /**
+     * Result of a successful authentication, which is used to populate the carbon context on a cache hit.
+     */
+    public static class AuthenticatedUser {
+
+        private final String userName;
+        private final String tenantAwareUserName;
+        private final String tenantDomain;
+        private final int tenantId;
+
+        public AuthenticatedUser(String userName, String tenantAwareUserName, String tenantDomain, int tenantId) {
+            this.userName = userName;
+            this.tenantAwareUserName = tenantAwareUserName;
+            this.tenantDomain = tenantDomain;
+            this.tenantId = tenantId;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public String getTenantAwareUserName() {
+            return tenantAwareUserName;
+        }
+
+        public String getTenantDomain() {
+            return tenantDomain;
+        }
+
+        public int getTenantId() {
+            return tenantId;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.handler;
+
+import org.wso2.carbon.user.core.UserStoreException;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.common.AbstractUserOperationEventListener;
+
+/**
+ * Drops the cached Basic auth results of a user from the {@link BasicAuthCredentialCache} when the password of the
+ * user is changed or the user is deleted, so the old credentials stop authenticating right away.
+ */
+public class CredentialCacheListener extends AbstractUserOperationEventListener {
+
+    // runs after the listeners of the platform, it only reacts to completed operations
+    private static final int EXECUTION_ORDER_ID = 9000;
+
+    @Override
+    public int getExecutionOrderId() {
+        return EXECUTION_ORDER_ID;
+    }
+
+    @Override
+    public boolean doPostUpdateCredential(String userName, Object credential, UserStoreManager userStoreManager)
+            throws UserStoreException {
+        BasicAuthCredentialCache.invalidate(userStoreManager.getTenantId(), userName);
+        return true;
+    }
+
+    @Override
+    public boolean doPostUpdateCredentialByAdmin(String userName, Object credential,
+                                                 UserStoreManager userStoreManager) throws UserStoreException {
+        BasicAuthCredentialCache.invalidate(userStoreManager.getTenantId(), userName);
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteUser(String userName, UserStoreManager userStoreManager) throws UserStoreException {
+        BasicAuthCredentialCache.invalidate(userStoreManager.getTenantId(), userName);
+        return true;
+    }
+}
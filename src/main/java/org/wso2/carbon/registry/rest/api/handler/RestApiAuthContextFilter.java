@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.handler;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.cxf.jaxrs.utils.JAXRSUtils;
+import org.apache.cxf.message.Exchange;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.rest.api.RegistryRestSuper;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContext;
+import org.wso2.carbon.registry.rest.api.security.RestAPISecurityUtils;
+import java.io.IOException;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Response;
+
+/**
+ * Resolves the auth context and the user registry exactly once per request.
+ * Both are stored on the CXF exchange and injected into the resource methods through
+ * {@link RestAPIAuthContextProvider} and {@link UserRegistryContextProvider} as
+ * {@code @Context RestAPIAuthContext} and {@code @Context Registry} parameters.
+ * Unauthorized requests are rejected here with HTTP 401 before they reach any resource.
+ */
+@Priority(Priorities.AUTHORIZATION)
+public class RestApiAuthContextFilter implements ContainerRequestFilter {
+
+    public static final String AUTH_CONTEXT_PROPERTY = "org.wso2.carbon.registry.rest.api.authContext";
+    public static final String USER_REGISTRY_PROPERTY = "org.wso2.carbon.registry.rest.api.userRegistry";
+
+    private static final String JWT_ASSERTION_HEADER = "X-JWT-Assertion";
+
+    protected Log log = LogFactory.getLog(RestApiAuthContextFilter.class);
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+
+        long startTime = System.nanoTime();
+        RestAPIAuthContext authContext = RestAPISecurityUtils.getAuthContext(
+                PrivilegedCarbonContext.getThreadLocalCarbonContext(),
+                requestContext.getHeaderString(JWT_ASSERTION_HEADER));
+
+        if (!authContext.isAuthorized()) {
+            requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED).build());
+            return;
+        }
+        Registry registry = RegistryRestSuper.getUserRegistry(authContext.getUserName(), authContext.getTenantId());
+        if (registry == null) {
+            requestContext.abortWith(Response.status(Response.Status.INTERNAL_SERVER_ERROR).build());
+            return;
+        }
+        Exchange exchange = JAXRSUtils.getCurrentMessage().getExchange();
+        exchange.put(AUTH_CONTEXT_PROPERTY, authContext);
+        exchange.put(USER_REGISTRY_PROPERTY, registry);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Auth context resolved for user : " + authContext.getUserName() + ", tenant : "
+                    + authContext.getTenantId() + " in " + (System.nanoTime() - startTime) / 1000 + " micro seconds");
+        }
+    }
+}
@@ -22,18 +22,19 @@ import org.apache.cxf.jaxrs.utils.JAXRSUtils;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.transport.http.auth.HttpAuthHeader;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
-import org.wso2.carbon.registry.core.config.RegistryContext;
 import org.wso2.carbon.registry.rest.api.exception.RestApiBasicAuthenticationException;
 import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.api.UserStoreManager;
 import org.wso2.carbon.user.core.service.RealmService;
-import org.wso2.carbon.user.core.tenant.TenantManager;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 import java.io.IOException;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.core.Response;
 
+@Priority(Priorities.AUTHENTICATION)
 public class RestApiBasicAuthenticationHandler implements ContainerRequestFilter {
 
     protected Log log = LogFactory.getLog(RestApiBasicAuthenticationHandler.class);
@@ -54,12 +55,27 @@ public class RestApiBasicAuthenticationHandler implements ContainerRequestFilter
         String tenantAwareUserName = MultitenantUtils.getTenantAwareUsername(userName);
         String userNameWithTenantDomain = tenantAwareUserName + "@" + tenantDomain;
 
-        RealmService realmService = RegistryContext.getBaseInstance().getRealmService();
-        TenantManager mgr = realmService.getTenantManager();
+        String cacheKey = BasicAuthCredentialCache.getKey(userName, password);
+        BasicAuthCredentialCache.AuthenticatedUser authenticatedUser =
+                BasicAuthCredentialCache.getAuthenticatedUser(cacheKey);
+        if (authenticatedUser != null) {
+            setCarbonContext(authenticatedUser.getTenantAwareUserName(), authenticatedUser.getTenantId(),
+                    authenticatedUser.getTenantDomain());
+            return true;
+        }
+        if (BasicAuthCredentialCache.isRecentlyFailed(cacheKey)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Basic authentication request failed recently, skipping user store : "
+                        + userNameWithTenantDomain);
+            }
+            return false;
+        }
+
+        RealmService realmService = TenantIdResolver.getRealmService();
 
         int tenantId = 0;
         try {
-            tenantId = mgr.getTenantId(tenantDomain);
+            tenantId = TenantIdResolver.getTenantId(tenantDomain);
         } catch (UserStoreException e) {
             throw new RestApiBasicAuthenticationException(
                     "Identity exception thrown while getting tenant ID for user : " + userNameWithTenantDomain, e);
@@ -70,6 +86,7 @@ public class RestApiBasicAuthenticationHandler implements ContainerRequestFilter
             if (log.isDebugEnabled()) {
                 log.debug("Basic authentication request with an invalid tenant : " + userNameWithTenantDomain);
             }
+            BasicAuthCredentialCache.putFailedAttempt(cacheKey, userNameWithTenantDomain);
             return false;
         }
 
@@ -90,20 +107,28 @@ public class RestApiBasicAuthenticationHandler implements ContainerRequestFilter
         }
 
         if (authStatus) {
-            /*
-             * Upon successful authentication existing thread local carbon context is
-             * updated to mimic the authenticated user
-             */
-
-            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-            carbonContext.setUsername(tenantAwareUserName);
-            carbonContext.setTenantId(tenantId);
-            carbonContext.setTenantDomain(tenantDomain);
+            BasicAuthCredentialCache.putAuthenticatedUser(cacheKey, new BasicAuthCredentialCache.AuthenticatedUser(
+                    userNameWithTenantDomain, tenantAwareUserName, tenantDomain, tenantId));
+            setCarbonContext(tenantAwareUserName, tenantId, tenantDomain);
+        } else {
+            BasicAuthCredentialCache.putFailedAttempt(cacheKey, userNameWithTenantDomain);
         }
         return authStatus;
 
     }
 
+    /**
+     * Upon successful authentication existing thread local carbon context is
+     * updated to mimic the authenticated user
+     */
+    private void setCarbonContext(String tenantAwareUserName, int tenantId, String tenantDomain) {
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setUsername(tenantAwareUserName);
+        carbonContext.setTenantId(tenantId);
+        carbonContext.setTenantDomain(tenantDomain);
+    }
+
     /**
      * Implementation of RequestHandler.handleRequest method.
      * This method retrieves userName and password from Basic auth header,
@@ -129,6 +154,7 @@ public class RestApiBasicAuthenticationHandler implements ContainerRequestFilter
 
             requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
                     .header("WWW-Authenticate", HttpAuthHeader.AUTH_TYPE_BASIC).build());
+            return;
         }
 
         try {
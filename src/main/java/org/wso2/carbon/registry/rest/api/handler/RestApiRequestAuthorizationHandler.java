@@ -17,15 +17,12 @@
 
 package org.wso2.carbon.registry.rest.api.handler;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.cxf.jaxrs.utils.JAXRSUtils;
 import org.apache.cxf.message.Message;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.registry.rest.api.security.JWTClaimExtractor;
 import org.wso2.carbon.user.api.UserStoreException;
-import org.wso2.carbon.user.core.service.RealmService;
-import org.wso2.carbon.user.core.tenant.TenantManager;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 import java.io.IOException;
 import javax.ws.rs.container.ContainerRequestContext;
@@ -34,8 +31,9 @@ import javax.ws.rs.core.Response;
 
 public class RestApiRequestAuthorizationHandler implements ContainerRequestFilter {
 
+    private static final String JWT_ASSERTION_HEADER = "X-JWT-Assertion";
+
     protected Log log = LogFactory.getLog(RestApiRequestAuthorizationHandler.class);
-    private RealmService service;
 
     /**
      * this method extract the jwt token header among the request headers, extract
@@ -50,10 +48,10 @@ public class RestApiRequestAuthorizationHandler implements ContainerRequestFilte
      * YWRtaW4ifQ.Q4Q1ET1SECUT1+OT3AEkNXuUnRg3ssUnWWyOt2Us8boBwjA9AYjnKvDnMqqaOJUjRzWqGdZjoYXycTlTmqFBVdN
      * Nq+V4Ol4FMcL5zA3mat4JvYQlvhtqD/3zP0pM7SrLCPQ8uCTWWVlX/y+bUg1F1MoKUGvpmACDbgdLtRT9Btc=
      *
-     * from the above token, extract the part in between two dots(.) and decode that
-     * to string variable. the decoded string has the informations such as app name,
-     * subscriber's username and enduser's username ..etc. Then extract the
-     * enduser's username and returns to the caller.
+     * from the above token, the part in between two dots(.) is decoded and read by the
+     * JWTClaimExtractor. the decoded payload has the informations such as app name,
+     * subscriber's username and enduser's username ..etc. The enduser's username is
+     * returned to the caller.
      *
      * After decoded the extracted portion will be as follows:
      * {"iss":"wso2.org/products/am","exp":1367660211994,"http://wso2.org/claims/subscriber":"admin",
@@ -63,25 +61,12 @@ public class RestApiRequestAuthorizationHandler implements ContainerRequestFilte
      * "http://wso2.org/claims/keytype":"PRODUCTION","http://wso2.org/claims/usertype":"APPLICATION",
      * "http://wso2.org/claims/enduser":"admin","http://wso2.org/claims/enduserTenantId":"-1234"}
      */
-    private String getUsernameFromJwtToken(String header) {
+    private String getUsernameFromJwtToken(String jwtToken) throws IOException {
 
         if (log.isDebugEnabled()) {
             log.debug("Extracting the username of the enduser from the JWT token");
         }
-        header = header.substring(header.indexOf("x-jwt-assertion"));
-        header = header.substring(header.indexOf(".") + 1, header.lastIndexOf("."));
-
-        // decode the jwt token and convert it to string
-        byte[] jwtBytes = header.getBytes();
-        byte[] decodedBytes = Base64.decodeBase64(jwtBytes);
-        String jwtStr = new String(decodedBytes);
-
-        // extract the enduser's username and returns
-        int endUserIndex = jwtStr.indexOf("http://wso2.org/claims/enduser");
-        jwtStr = jwtStr.substring(endUserIndex + "http://wso2.org/claims/enduser".length() + 1);
-        String endUsername = jwtStr.substring(jwtStr.indexOf('"') + 1);
-        endUsername = endUsername.substring(0, endUsername.indexOf('"'));
-        return endUsername;
+        return JWTClaimExtractor.extract(jwtToken).getEndUser();
     }
 
     private int getTenantIdOFUser(String username) throws UserStoreException {
@@ -90,10 +75,7 @@ public class RestApiRequestAuthorizationHandler implements ContainerRequestFilte
         String domainName = MultitenantUtils.getTenantDomain(username);
         if (domainName != null) {
             try {
-                RealmService service = (RealmService) PrivilegedCarbonContext.getThreadLocalCarbonContext()
-                        .getOSGiService(RealmService.class, null);
-                TenantManager tenantManager = service.getTenantManager();
-                tenantId = tenantManager.getTenantId(domainName);
+                tenantId = TenantIdResolver.getTenantId(domainName);
             } catch (UserStoreException e) {
                 String errorMsg = "Error when getting the tenant id from the tenant domain : " + domainName;
                 log.error(errorMsg, e);
@@ -121,15 +103,27 @@ public class RestApiRequestAuthorizationHandler implements ContainerRequestFilte
         String requestUrl = message.get(Message.REQUEST_URL).toString();
         String queryParam = (message.get(Message.QUERY_STRING) != null) ? message.get(Message.QUERY_STRING).toString()
                 : "";
-        // extracting all the headers received along with the request.
-        String header = message.get(Message.PROTOCOL_HEADERS).toString();
-        String userName = getUsernameFromJwtToken(header);
+        String jwtToken = requestContext.getHeaderString(JWT_ASSERTION_HEADER);
+        String userName;
+        try {
+            userName = (jwtToken != null) ? getUsernameFromJwtToken(jwtToken) : null;
+        } catch (IOException | IllegalArgumentException e) {
+            // a token which cannot be decoded is treated as any other invalid token
+            log.warn("Rejected a request with a malformed JWT token : " + e.getMessage());
+            requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED).build());
+            return;
+        }
+        if (userName == null) {
+            requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED).build());
+            return;
+        }
         String tenantID = null;
         try {
             tenantID = String.valueOf(getTenantIdOFUser(userName));
         } catch (UserStoreException e) {
             log.error(e.getMessage(), e);
             requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED).build());
+            return;
         }
         String queryParamAppender = (queryParam.length() == 0 ? "" : "&");
         queryParam += queryParamAppender + "username=" + userName + "&tenantid=" + tenantID;
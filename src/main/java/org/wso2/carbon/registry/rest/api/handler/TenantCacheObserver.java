@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.handler;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.wso2.carbon.registry.rest.api.cache.RatingAggregateStore;
+import org.wso2.carbon.utils.AbstractAxis2ConfigurationContextObserver;
+import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
+
+/**
+ * Passes tenant lifecycle events to the {@link TenantIdResolver}, and stores the ratings query of the
+ * {@link RatingAggregateStore} in the config registry of a loaded tenant. A tenant is loaded when it is activated
+ * and used, and unloaded when it is deactivated or idle; every unload drops what the API cached for the tenant, so
+ * a deactivated tenant stops authenticating right away.
+ */
+public class TenantCacheObserver extends AbstractAxis2ConfigurationContextObserver {
+
+    @Override
+    public void createdConfigurationContext(ConfigurationContext configurationContext) {
+        int tenantId = MultitenantUtils.getTenantId(configurationContext);
+        TenantIdResolver.onTenantActivation(tenantId);
+        RatingAggregateStore.registerRatingsQuery(tenantId);
+    }
+
+    @Override
+    public void terminatingConfigurationContext(ConfigurationContext configurationContext) {
+        TenantIdResolver.onTenantDeactivation(MultitenantUtils.getTenantId(configurationContext));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.handler;
+
+import com.google.common.cache.Cache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.registry.core.config.RegistryContext;
+import org.wso2.carbon.registry.rest.api.cache.CacheSettings;
+import org.wso2.carbon.registry.rest.api.cache.UserRegistryCache;
+import org.wso2.carbon.registry.rest.api.security.RestAPIAuthContextCache;
+import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.user.core.service.RealmService;
+
+/**
+ * Resolves tenant domains to tenant ids for the authentication and authorization handlers.
+ * Resolved ids are kept in a concurrent cache and the realm service reference is looked up only once.
+ * Unknown domains are never cached so that newly activated tenants are picked up immediately. The
+ * {@link TenantCacheObserver} drops entries through {@link #onTenantActivation(int)} and
+ * {@link #onTenantDeactivation(int)} when tenants are loaded and unloaded.
+ */
+public class TenantIdResolver {
+
+    public static final String CACHE_SIZE_PROPERTY = "registry.rest.api.tenant.cache.size";
+    public static final String CACHE_TTL_PROPERTY = "registry.rest.api.tenant.cache.ttlSeconds";
+
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final long DEFAULT_CACHE_TTL = 900;
+
+    private static Log log = LogFactory.getLog(TenantIdResolver.class);
+
+    private static final Cache<String, Integer> tenantIds = new CacheSettings(
+            CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE, CACHE_TTL_PROPERTY, DEFAULT_CACHE_TTL).build();
+
+    private static volatile RealmService realmService;
+
+    /**
+     * Returns the tenant id of the given tenant domain.
+     *
+     * @param tenantDomain tenant domain (eg: carbon.super)
+     * @return tenant id, or -1 if the domain is not a valid tenant
+     * @throws UserStoreException if the tenant manager fails to resolve the domain
+     */
+    public static int getTenantId(String tenantDomain) throws UserStoreException {
+        Integer tenantId = tenantIds.getIfPresent(tenantDomain);
+        if (tenantId != null) {
+            return tenantId;
+        }
+        int resolvedTenantId = getRealmService().getTenantManager().getTenantId(tenantDomain);
+        if (resolvedTenantId != MultitenantConstants.INVALID_TENANT_ID) {
+            tenantIds.put(tenantDomain, resolvedTenantId);
+        }
+        return resolvedTenantId;
+    }
+
+    /**
+     * Returns the realm service, looking it up from the registry context or the OSGi registry on first use.
+     */
+    public static RealmService getRealmService() {
+        RealmService service = realmService;
+        if (service == null) {
+            RegistryContext registryContext = RegistryContext.getBaseInstance();
+            if (registryContext != null) {
+                service = registryContext.getRealmService();
+            }
+            if (service == null) {
+                service = (RealmService) PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                        .getOSGiService(RealmService.class, null);
+            }
+            realmService = service;
+        }
+        return service;
+    }
+
+    public static void onTenantActivation(int tenantId) {
+        invalidate(tenantId);
+    }
+
+    /**
+     * Drops everything cached for the tenant, including the authentication results of its users.
+     */
+    public static void onTenantDeactivation(int tenantId) {
+        invalidate(tenantId);
+        UserRegistryCache.invalidate(tenantId);
+        BasicAuthCredentialCache.invalidate(tenantId);
+        RestAPIAuthContextCache.invalidate(tenantId);
+    }
+
+    public static void invalidate(String tenantDomain) {
+        tenantIds.invalidate(tenantDomain);
+    }
+
+    public static void invalidateAll() {
+        tenantIds.invalidateAll();
+        realmService = null;
+    }
+
+    private static void invalidate(int tenantId) {
+        tenantIds.asMap().values().removeIf(cachedTenantId -> cachedTenantId == tenantId);
+        if (log.isDebugEnabled()) {
+            log.debug("Cached tenant domain invalidated for tenant : " + tenantId);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.handler;
+
+import org.apache.cxf.jaxrs.ext.ContextProvider;
+import org.apache.cxf.message.Message;
+import org.wso2.carbon.registry.core.Registry;
+
+/**
+ * Makes the user registry resolved by {@link RestApiAuthContextFilter} injectable as {@code @Context Registry}.
+ */
+public class UserRegistryContextProvider implements ContextProvider<Registry> {
+
+    @Override
+    public Registry createContext(Message message) {
+        return (Registry) message.getExchange().get(RestApiAuthContextFilter.USER_REGISTRY_PROPERTY);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.job;
+
+import java.util.Date;
+import java.util.concurrent.Future;
+
+/**
+ * State of a long running registry operation executed by the {@link JobManager}.
+ * Progress is reported by the operation as a number of completed units out of a total, where the total is -1 while
+ * it is not known. Cancellation is cooperative: a queued job is cancelled before it starts, a running job is asked to
+ * stop and does so at its next checkpoint.
+ */
+public class Job {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final String type;
+    private final int tenantId;
+    private final String userName;
+    private final String source;
+    private final String destination;
+    private final Date createdTime;
+    private volatile Status status = Status.QUEUED;
+    private volatile Date startedTime;
+    private volatile Date finishedTime;
+    private volatile long completed;
+    private volatile long total = -1;
+    private volatile String message;
+    private volatile boolean cancelRequested;
+    private volatile Future<?> future;
+
+    Job(String id, String type, int tenantId, String userName, String source, String destination,
+        Date createdTime) {
+        this.id = id;
+        this.type = type;
+        this.tenantId = tenantId;
+        this.userName = userName;
+        this.source = source;
+        this.destination = destination;
+        this.createdTime = createdTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public Date getCreatedTime() {
+        return createdTime;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getStartedTime() {
+        return startedTime;
+    }
+
+    public Date getFinishedTime() {
+        return finishedTime;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    /**
+     * @return true if the job was asked to stop; operations check this between their steps
+     */
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * Reports the progress of the operation.
+     *
+     * @param completed number of completed units
+     * @param total     total number of units, -1 if not known
+     */
+    public void setProgress(long completed, long total) {
+        this.completed = completed;
+        this.total = total;
+    }
+
+    /**
+     * @return true if the given user of the given tenant submitted the job
+     */
+    public boolean isOwner(int tenantId, String userName) {
+        return this.tenantId == tenantId && this.userName.equals(userName);
+    }
+
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedTime = new Date();
+        return true;
+    }
+
+    synchronized void finish(Status status, String message) {
+        if (isFinished()) {
+            return;
+        }
+        this.status = status;
+        this.message = message;
+        this.finishedTime = new Date();
+    }
+
+    synchronized void requestCancel() {
+        cancelRequested = true;
+        if (status == Status.QUEUED) {
+            finish(Status.CANCELLED, null);
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Restores a job from its persisted state.
+     */
+    static Job restore(String id, String type, int tenantId, String userName, String source, String destination,
+                       Date createdTime, Status status, Date startedTime, Date finishedTime, long completed, long total,
+                       String message) {
+        Job job = new Job(id, type, tenantId, userName, source, destination, createdTime);
+        job.status = status;
+        job.startedTime = startedTime;
+        job.finishedTime = finishedTime;
+        job.completed = completed;
+        job.total = total;
+        job.message = message;
+        return job;
+    }
+}
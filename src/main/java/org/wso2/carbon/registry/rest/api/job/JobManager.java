@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.job;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs long registry operations, such as copies and moves of large subtrees, off the request threads.
+ * Jobs are executed by a bounded pool of workers with a bounded queue; when the queue is full new jobs are rejected.
+ * The state of the jobs is kept in memory for the configured retention time after they finish; expired jobs are
+ * dropped by a background task every minute. When a state directory
+ * is configured, the state is also written there on every status change, so finished jobs can still be queried after
+ * a restart; jobs which were queued or running at the time of the restart are reported as failed.
+ */
+public class JobManager {
+
+    public static final String WORKERS_PROPERTY = "registry.rest.api.jobs.workers";
+    public static final String QUEUE_SIZE_PROPERTY = "registry.rest.api.jobs.queueSize";
+    public static final String RETENTION_PROPERTY = "registry.rest.api.jobs.retentionSeconds";
+    public static final String STATE_DIRECTORY_PROPERTY = "registry.rest.api.jobs.stateDirectory";
+
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final long DEFAULT_RETENTION = 24 * 60 * 60;
+    private static final String STATE_FILE_SUFFIX = ".json";
+    private static final long PURGE_INTERVAL = 60;
+
+    private static Log log = LogFactory.getLog(JobManager.class);
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final long retentionMillis = TimeUnit.SECONDS.toMillis(
+            Long.getLong(RETENTION_PROPERTY, DEFAULT_RETENTION));
+    private static final String stateDirectory = System.getProperty(STATE_DIRECTORY_PROPERTY);
+    private static final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor executor;
+    private static final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "registry-rest-job-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        int workers = Integer.getInteger(WORKERS_PROPERTY, DEFAULT_WORKERS);
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<Runnable>(
+                                                  Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE)),
+                                          runnable -> {
+                                              Thread thread = new Thread(runnable, "registry-rest-job-"
+                                                                                   + threadCount.incrementAndGet());
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          });
+        loadJobs();
+        purger.scheduleWithFixedDelay(() -> {
+            // an exception would cancel the schedule
+            try {
+                purge();
+            } catch (RuntimeException e) {
+                log.warn("Failed to purge the finished jobs", e);
+            }
+        }, PURGE_INTERVAL, PURGE_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Operation executed by a job. It reports its progress on the job and, at its checkpoints, stops by throwing a
+     * {@link CancellationException} when {@link Job#isCancelRequested()} is set.
+     */
+    public interface JobTask {
+
+        void run(Job job) throws Exception;
+    }
+
+    /**
+     * Queues a job. The task runs in a tenant flow of the submitting user.
+     *
+     * @param type         type of the operation, e.g. copy or move
+     * @param tenantId     tenant of the user submitting the job
+     * @param tenantDomain tenant domain of the user submitting the job
+     * @param userName     user submitting the job
+     * @param source       source path of the operation
+     * @param destination  destination path of the operation, may be null
+     * @param task         the operation
+     * @return the queued job
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public static Job submit(String type, int tenantId, String tenantDomain, String userName, String source,
+                             String destination, JobTask task) {
+        Job job = new Job(UUID.randomUUID().toString(), type, tenantId, userName, source, destination, new Date());
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> run(job, tenantDomain, task)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        persist(job);
+        return job;
+    }
+
+    /**
+     * @return the job with the given id if it is owned by the given user, otherwise null
+     */
+    public static Job get(String id, int tenantId, String userName) {
+        Job job = jobs.get(id);
+        if (job == null || !job.isOwner(tenantId, userName)) {
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Stops the workers and the purge task, interrupting the running jobs. Called when the webapp is undeployed; jobs
+     * which were running are reported as failed after the next start if a state directory is configured.
+     */
+    public static void shutdown() {
+        purger.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Cancels a queued job, or asks a running job to stop at its next checkpoint.
+     */
+    public static void cancel(Job job) {
+        job.requestCancel();
+        if (job.isFinished()) {
+            persist(job);
+        }
+    }
+
+    private static void run(Job job, String tenantDomain, JobTask task) {
+        if (!job.start()) {
+            // cancelled while queued
+            return;
+        }
+        persist(job);
+        PrivilegedCarbonContext.startTenantFlow();
+        try {
+            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+            carbonContext.setTenantId(job.getTenantId());
+            carbonContext.setTenantDomain(tenantDomain);
+            carbonContext.setUsername(job.getUserName());
+            task.run(job);
+            job.finish(Job.Status.SUCCEEDED, null);
+        } catch (CancellationException e) {
+            job.finish(Job.Status.CANCELLED, e.getMessage());
+        } catch (Exception e) {
+            log.error("Job " + job.getId() + " (" + job.getType() + " of " + job.getSource() + ") failed", e);
+            job.finish(Job.Status.FAILED, e.getMessage());
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+            persist(job);
+        }
+    }
+
+    /**
+     * Drops the jobs which finished longer than the retention time ago.
+     */
+    private static void purge() {
+        long expiry = System.currentTimeMillis() - retentionMillis;
+        for (Job job : jobs.values()) {
+            if (job.isFinished() && job.getFinishedTime() != null && job.getFinishedTime().getTime() < expiry) {
+                jobs.remove(job.getId());
+                if (stateDirectory != null) {
+                    try {
+                        Files.deleteIfExists(getStateFile(job.getId()));
+                    } catch (IOException e) {
+                        log.warn("Failed to delete the state of job " + job.getId(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void persist(Job job) {
+        if (stateDirectory == null) {
+            return;
+        }
+        // status changes of the same job may be persisted from the worker and a request thread at once
+        synchronized (job) {
+            writeJob(job);
+        }
+    }
+
+    private static void writeJob(Job job) {
+        try {
+            Path stateFile = getStateFile(job.getId());
+            Path tempFile = Files.createTempFile(stateFile.getParent(), job.getId(), ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tempFile);
+                 JsonGenerator generator = jsonFactory.createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeStringField("id", job.getId());
+                generator.writeStringField("type", job.getType());
+                generator.writeNumberField("tenantId", job.getTenantId());
+                generator.writeStringField("userName", job.getUserName());
+                generator.writeStringField("source", job.getSource());
+                generator.writeStringField("destination", job.getDestination());
+                generator.writeStringField("status", job.getStatus().name());
+                writeTime(generator, "createdTime", job.getCreatedTime());
+                writeTime(generator, "startedTime", job.getStartedTime());
+                writeTime(generator, "finishedTime", job.getFinishedTime());
+                generator.writeNumberField("completed", job.getCompleted());
+                generator.writeNumberField("total", job.getTotal());
+                generator.writeStringField("message", job.getMessage());
+                generator.writeEndObject();
+            }
+            // a job is never read back half written
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to persist the state of job " + job.getId(), e);
+        }
+    }
+
+    private static void loadJobs() {
+        if (stateDirectory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(Paths.get(stateDirectory));
+            try (DirectoryStream<Path> stateFiles = Files.newDirectoryStream(Paths.get(stateDirectory),
+                                                                             "*" + STATE_FILE_SUFFIX)) {
+                for (Path stateFile : stateFiles) {
+                    Job job = readJob(stateFile);
+                    if (job == null) {
+                        continue;
+                    }
+                    jobs.put(job.getId(), job);
+                    if (!job.isFinished()) {
+                        job.finish(Job.Status.FAILED, "Interrupted by a server restart");
+                        persist(job);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to load the job states from " + stateDirectory, e);
+        }
+    }
+
+    private static Job readJob(Path stateFile) {
+        Map<String, String> fields = new HashMap<String, String>();
+        try (InputStream inputStream = Files.newInputStream(stateFile);
+             JsonParser parser = jsonFactory.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Job state is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                fields.put(name, token == JsonToken.VALUE_NULL ? null : parser.getText());
+            }
+            return Job.restore(fields.get("id"), fields.get("type"), Integer.parseInt(fields.get("tenantId")),
+                               fields.get("userName"), fields.get("source"), fields.get("destination"),
+                               readTime(fields.get("createdTime")), Job.Status.valueOf(fields.get("status")),
+                               readTime(fields.get("startedTime")), readTime(fields.get("finishedTime")),
+                               Long.parseLong(fields.get("completed")), Long.parseLong(fields.get("total")),
+                               fields.get("message"));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring the invalid job state " + stateFile, e);
+            return null;
+        }
+    }
+
+    private static void writeTime(JsonGenerator generator, String name, Date time) throws IOException {
+        if (time == null) {
+            generator.writeNullField(name);
+        } else {
+            generator.writeNumberField(name, time.getTime());
+        }
+    }
+
+    private static Date readTime(String time) {
+        return time == null ? null : new Date(Long.parseLong(time));
+    }
+
+    private static Path getStateFile(String id) {
+        return Paths.get(stateDirectory, id + STATE_FILE_SUFFIX);
+    }
+}
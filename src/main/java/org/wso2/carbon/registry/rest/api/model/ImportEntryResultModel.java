@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api.model;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class provides getters and setters to model the result of importing one archive entry
+ */
+@XmlRootElement(name = "ImportEntryResultModel")
+public class ImportEntryResultModel {
+
+	public static final String IMPORTED = "imported";
+	public static final String FAILED = "failed";
+
+	private String path;
+	private String status;
+	private String message;
+
+	public ImportEntryResultModel(String path, String status, String message) {
+		this.path = path;
+		this.status = status;
+		this.message = message;
+	}
+
+	public ImportEntryResultModel() {
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+}
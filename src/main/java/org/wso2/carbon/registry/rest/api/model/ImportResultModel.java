@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api.model;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.List;
+
+/**
+ * This class provides getters and setters to model the result of an archive import
+ */
+@XmlRootElement(name = "ImportResultModel")
+public class ImportResultModel {
+
+	private int imported;
+	private int failed;
+	private ImportEntryResultModel[] entries;
+
+	public ImportResultModel(List<ImportEntryResultModel> results) {
+		this.entries = results.toArray(new ImportEntryResultModel[results.size()]);
+		for (ImportEntryResultModel result : entries) {
+			if (ImportEntryResultModel.IMPORTED.equals(result.getStatus())) {
+				imported++;
+			} else {
+				failed++;
+			}
+		}
+	}
+
+	public ImportResultModel() {
+	}
+
+	public int getImported() {
+		return imported;
+	}
+
+	public void setImported(int imported) {
+		this.imported = imported;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	public void setFailed(int failed) {
+		this.failed = failed;
+	}
+
+	public ImportEntryResultModel[] getEntries() {
+		return entries;
+	}
+
+	public void setEntries(ImportEntryResultModel[] entries) {
+		this.entries = entries;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api.model;
+
+import org.wso2.carbon.registry.rest.api.job.Job;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.Date;
+
+/**
+ * This class provides getters and setters to model the status and progress of an asynchronous job
+ */
+@XmlRootElement(name = "JobModel")
+public class JobModel {
+
+	private String id;
+	private String type;
+	private String status;
+	private String source;
+	private String destination;
+	private long completed;
+	private long total;
+	private String message;
+	private String createdTime;
+	private String startedTime;
+	private String finishedTime;
+
+	public JobModel(Job job) {
+		this.id = job.getId();
+		this.type = job.getType();
+		this.status = job.getStatus().name();
+		this.source = job.getSource();
+		this.destination = job.getDestination();
+		this.completed = job.getCompleted();
+		this.total = job.getTotal();
+		this.message = job.getMessage();
+		this.createdTime = toString(job.getCreatedTime());
+		this.startedTime = toString(job.getStartedTime());
+		this.finishedTime = toString(job.getFinishedTime());
+	}
+
+	public JobModel() {
+	}
+
+	private static String toString(Date time) {
+		return time != null ? time.toGMTString() : null;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public void setSource(String source) {
+		this.source = source;
+	}
+
+	public String getDestination() {
+		return destination;
+	}
+
+	public void setDestination(String destination) {
+		this.destination = destination;
+	}
+
+	public long getCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(long completed) {
+		this.completed = completed;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public String getCreatedTime() {
+		return createdTime;
+	}
+
+	public void setCreatedTime(String createdTime) {
+		this.createdTime = createdTime;
+	}
+
+	public String getStartedTime() {
+		return startedTime;
+	}
+
+	public void setStartedTime(String startedTime) {
+		this.startedTime = startedTime;
+	}
+
+	public String getFinishedTime() {
+		return finishedTime;
+	}
+
+	public void setFinishedTime(String finishedTime) {
+		this.finishedTime = finishedTime;
+	}
+}
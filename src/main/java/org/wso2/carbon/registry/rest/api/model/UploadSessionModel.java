@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api.model;
+
+import org.wso2.carbon.registry.rest.api.upload.UploadSession;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class provides getters and setters to model an upload session and its committed offset
+ */
+@XmlRootElement(name = "UploadSessionModel")
+public class UploadSessionModel {
+
+	private String id;
+	private String path;
+	private String mediaType;
+	private long offset;
+
+	public UploadSessionModel(UploadSession session) {
+		this.id = session.getId();
+		this.path = session.getPath();
+		this.mediaType = session.getMediaType();
+		this.offset = session.getOffset();
+	}
+
+	public UploadSessionModel() {
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public String getMediaType() {
+		return mediaType;
+	}
+
+	public void setMediaType(String mediaType) {
+		this.mediaType = mediaType;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public void setOffset(long offset) {
+		this.offset = offset;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2013, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.commons.codec.binary.Base64;
+import java.io.IOException;
+
+/**
+ * Extracts the claims used by the REST API from an X-JWT-Assertion token.
+ * The Base64URL payload (the part in between the two dots) is decoded once into a byte buffer which is read
+ * in a single pass with the Jackson streaming parser, so the claims may appear in any order.
+ */
+public class JWTClaimExtractor {
+
+	public static final String END_USER_CLAIM = "http://wso2.org/claims/enduser";
+
+	public static final String END_USER_TENANT_ID_CLAIM = "http://wso2.org/claims/enduserTenantId";
+
+	public static final String EXPIRY_CLAIM = "exp";
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	/**
+	 * Older gateways send the exp claim in milliseconds while newer ones follow the JWT spec and send seconds.
+	 * Any value below this threshold (year 5138 in seconds) is treated as seconds.
+	 */
+	private static final long EXPIRY_IN_SECONDS_THRESHOLD = 100000000000L;
+
+	public static JWTClaims extract(String JWTToken) throws IOException {
+		int payloadStart = JWTToken.indexOf('.') + 1;
+		int payloadEnd = JWTToken.indexOf('.', payloadStart);
+		if (payloadStart == 0 || payloadEnd < 0) {
+			throw new IOException("Malformed JWT token, payload not found");
+		}
+		byte[] payload = Base64.decodeBase64(JWTToken.substring(payloadStart, payloadEnd));
+
+		JWTClaims claims = new JWTClaims();
+		try (JsonParser parser = jsonFactory.createParser(payload)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Malformed JWT token, payload is not a JSON object");
+			}
+			int remainingClaims = 3;
+			while (remainingClaims > 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+				String claim = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if (END_USER_CLAIM.equals(claim) && value.isScalarValue()) {
+					claims.setEndUser(parser.getText());
+					remainingClaims--;
+				} else if (END_USER_TENANT_ID_CLAIM.equals(claim) && value.isScalarValue()) {
+					claims.setEndUserTenantId(parser.getText());
+					remainingClaims--;
+				} else if (EXPIRY_CLAIM.equals(claim) && value.isScalarValue()) {
+					long expiry = parser.getValueAsLong(-1);
+					claims.setExpiryTime(expiry >= 0 && expiry < EXPIRY_IN_SECONDS_THRESHOLD ? expiry * 1000 : expiry);
+					remainingClaims--;
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		return claims;
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api.security;
+
+/**
+ * Claims of an X-JWT-Assertion token which are used by the REST API.
+ */
+public class JWTClaims {
+
+	private String endUser;
+
+	private String endUserTenantId;
+
+	private long expiryTime = -1;
+
+	public String getEndUser() {
+		return endUser;
+	}
+
+	public void setEndUser(String endUser) {
+		this.endUser = endUser;
+	}
+
+	public String getEndUserTenantId() {
+		return endUserTenantId;
+	}
+
+	public void setEndUserTenantId(String endUserTenantId) {
+		this.endUserTenantId = endUserTenantId;
+	}
+
+	/**
+	 * @return exp claim of the token in milliseconds, or -1 if the token does not carry one
+	 */
+	public long getExpiryTime() {
+		return expiryTime;
+	}
+
+	public void setExpiryTime(long expiryTime) {
+		this.expiryTime = expiryTime;
+	}
+
+}
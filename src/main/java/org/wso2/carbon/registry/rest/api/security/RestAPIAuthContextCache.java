@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.rest.api.security;
+
+import com.google.common.cache.Cache;
+import org.wso2.carbon.registry.rest.api.HashUtils;
+import org.wso2.carbon.registry.rest.api.cache.CacheSettings;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the auth contexts resolved from X-JWT-Assertion tokens. Entries are keyed by the SHA-256
+ * hash of the token, so raw tokens are never retained, and are kept until the exp claim of the token.
+ * Only the user name and tenant of a context are cached; every hit returns a new auth context, so a request changing
+ * its context does not affect the other requests carrying the same token.
+ */
+public class RestAPIAuthContextCache {
+
+	private static final CacheSettings settings = new CacheSettings(
+			RestAPISecurityConstants.JWT_CACHE_SIZE_PROPERTY, RestAPISecurityConstants.DEFAULT_JWT_CACHE_SIZE,
+			RestAPISecurityConstants.JWT_CACHE_MAX_TTL_PROPERTY, RestAPISecurityConstants.DEFAULT_JWT_CACHE_MAX_TTL);
+
+	private static final long MAX_TTL_MILLIS = TimeUnit.SECONDS.toMillis(settings.getExpirySeconds());
+
+	private static final Cache<String, CachedAuthContext> cache = settings.build();
+
+	private static final AtomicLong hitCount = new AtomicLong();
+
+	private static final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Returns the auth context cached for the given token, or null if the token has not been seen before
+	 * or has expired since.
+	 *
+	 * @param JWTToken value of the X-JWT-Assertion header
+	 * @return new auth context built from the cached one, or null
+	 */
+	public static RestAPIAuthContext get(String JWTToken) {
+		String key = HashUtils.sha256Hex(JWTToken);
+		CachedAuthContext cached = cache.getIfPresent(key);
+		if (cached != null) {
+			if (cached.expiryTime > System.currentTimeMillis()) {
+				hitCount.incrementAndGet();
+				return cached.toAuthContext();
+			}
+			cache.invalidate(key);
+		}
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Caches the auth context resolved from the given token.
+	 *
+	 * @param JWTToken    value of the X-JWT-Assertion header
+	 * @param authContext authorized auth context resolved from the token claims
+	 * @param expiryTime  exp claim of the token in milliseconds, or a negative value if the token has none
+	 */
+	public static void put(String JWTToken, RestAPIAuthContext authContext, long expiryTime) {
+		long maxExpiryTime = System.currentTimeMillis() + MAX_TTL_MILLIS;
+		if (expiryTime < 0 || expiryTime > maxExpiryTime) {
+			expiryTime = maxExpiryTime;
+		}
+		if (expiryTime > System.currentTimeMillis()) {
+			cache.put(HashUtils.sha256Hex(JWTToken), new CachedAuthContext(authContext, expiryTime));
+		}
+	}
+
+	public static long getHitCount() {
+		return hitCount.get();
+	}
+
+	public static long getMissCount() {
+		return missCount.get();
+	}
+
+	public static long size() {
+		return cache.size();
+	}
+
+	/**
+	 * Drops the auth contexts of every user of the tenant, e.g. when the tenant is deactivated.
+	 */
+	public static void invalidate(int tenantId) {
+		cache.asMap().values().removeIf(cached -> cached.tenantId == tenantId);
+	}
+
+	private static class CachedAuthContext {
+
+		private final String userName;
+
+		private final int tenantId;
+
+		private final long expiryTime;
+
+		private CachedAuthContext(RestAPIAuthContext authContext, long expiryTime) {
+			this.userName = authContext.getUserName();
+			this.tenantId = authContext.getTenantId();
+			this.expiryTime = expiryTime;
+		}
+
+		private RestAPIAuthContext toAuthContext() {
+			RestAPIAuthContext authContext = new RestAPIAuthContext();
+			authContext.setUserName(userName);
+			authContext.setTenantId(tenantId);
+			authContext.setAuthorized(true);
+			return authContext;
+		}
+	}
+}
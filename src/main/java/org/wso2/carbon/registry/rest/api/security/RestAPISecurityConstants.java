@@ -20,4 +20,12 @@ public class RestAPISecurityConstants {
 	
 	public static final String UNAUTHORIZED_ERROR = "User is not authorized to access the resource";
 
+	public static final String JWT_CACHE_SIZE_PROPERTY = "registry.rest.api.jwt.cache.size";
+
+	public static final String JWT_CACHE_MAX_TTL_PROPERTY = "registry.rest.api.jwt.cache.maxTTLSeconds";
+
+	public static final int DEFAULT_JWT_CACHE_SIZE = 10000;
+
+	public static final long DEFAULT_JWT_CACHE_MAX_TTL = 900;
+
 }
@@ -16,7 +16,6 @@
 
 package org.wso2.carbon.registry.rest.api.security;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
@@ -33,11 +32,18 @@ public class RestAPISecurityUtils {
 			authContext.setAuthorized(true);
 			
 		} else if (JWTToken != null){
-			String jWTTokenString = getTokenStringJWTToken(JWTToken);
+			RestAPIAuthContext cachedAuthContext = RestAPIAuthContextCache.get(JWTToken);
+			if (cachedAuthContext != null) {
+				return cachedAuthContext;
+			}
 			try {
-				authContext.setUserName(getUserNameFromJWTTokenString(jWTTokenString));
-				authContext.setTenantId(getTenantIdFromJWTTokenString(jWTTokenString));
-				authContext.setAuthorized(true);
+				JWTClaims claims = JWTClaimExtractor.extract(JWTToken);
+				authContext.setUserName(claims.getEndUser());
+				authContext.setTenantId(Integer.parseInt(claims.getEndUserTenantId()));
+				authContext.setAuthorized(claims.getEndUser() != null);
+				if (authContext.isAuthorized()) {
+					RestAPIAuthContextCache.put(JWTToken, authContext, claims.getExpiryTime());
+				}
 			} catch (Exception e) {
 				log.error("Error retrieving UserName and TenantID" , e);
 				authContext.setAuthorized(false);
@@ -48,35 +54,4 @@ public class RestAPISecurityUtils {
 		return authContext;
 	}
 	
-	private static String getTokenStringJWTToken(String JWTToken) {
-		String token = JWTToken.substring(JWTToken.indexOf(".") + 1, JWTToken.lastIndexOf("."));
-		
-		//decode the jwt token and convert it to string
-		byte[] jwtBytes = token.getBytes();
-		byte[] decodedBytes = Base64.decodeBase64(jwtBytes);
-
-        return new String(decodedBytes);
-		
-	}
-	
-	private static String getUserNameFromJWTTokenString(String JWTTokenString) throws Exception{
-		String endUserClaimUri = "http://wso2.org/claims/enduser";
-		int endUserIndex = JWTTokenString.indexOf(endUserClaimUri);
-		JWTTokenString = JWTTokenString.substring(endUserIndex + endUserClaimUri.length() + 1);	
-		String endUsername = JWTTokenString.substring(JWTTokenString.indexOf('"')+1); 
-		endUsername = endUsername.substring(0, endUsername.indexOf('"'));
-		
-		return endUsername;
-	}
-	
-	private static int getTenantIdFromJWTTokenString(String JWTTokenString) throws Exception{
-		String endUserTenantIdClaimUri = "http://wso2.org/claims/enduserTenantId";
-		int endUserIndex = JWTTokenString.indexOf(endUserTenantIdClaimUri);
-		JWTTokenString = JWTTokenString.substring(endUserIndex + endUserTenantIdClaimUri.length() + 1);
-		String endUserTenantId = JWTTokenString.substring(JWTTokenString.indexOf('"')+1);
-        endUserTenantId = endUserTenantId.substring(0, endUserTenantId.indexOf('"'));
-		
-		return Integer.parseInt(endUserTenantId);
-	}
-	
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.upload;
+
+import org.wso2.carbon.registry.rest.api.exception.UploadSizeExceededException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Upload of the content of a single resource in chunks.
+ * Chunks are appended to a spool file through a file channel, so the content is never held on the heap. The committed
+ * offset only moves forward after a chunk has been fully written; a chunk which fails half way is truncated again, so
+ * the client can resume the upload from the committed offset.
+ */
+public class UploadSession {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final String id;
+    private final int tenantId;
+    private final String userName;
+    private final String path;
+    private final String mediaType;
+    private final Path spoolFile;
+    private long offset;
+    private boolean completed;
+
+    UploadSession(String id, int tenantId, String userName, String path, String mediaType, Path spoolFile) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.userName = userName;
+        this.path = path;
+        this.mediaType = mediaType;
+        this.spoolFile = spoolFile;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return true if the session was created by the given user of the given tenant
+     */
+    public boolean isOwner(int tenantId, String userName) {
+        return this.tenantId == tenantId && this.userName.equals(userName);
+    }
+
+    /**
+     * Appends a chunk at the committed offset.
+     *
+     * @param chunk      content of the chunk
+     * @param maxBytes   maximum size of the whole upload
+     * @param bufferSize size of the copy buffer
+     * @return the new committed offset
+     * @throws UploadSizeExceededException if the upload grows beyond the maximum size
+     * @throws IllegalStateException        if the session is already completed
+     */
+    public synchronized long append(InputStream chunk, long maxBytes, int bufferSize) throws IOException {
+        if (completed) {
+            throw new IllegalStateException("Upload session " + id + " is already completed");
+        }
+        ReadableByteChannel source = Channels.newChannel(chunk);
+        try (FileChannel channel = FileChannel.open(spoolFile, StandardOpenOption.WRITE)) {
+            long position = offset;
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            try {
+                while (source.read(buffer) >= 0) {
+                    buffer.flip();
+                    if (position + buffer.remaining() > maxBytes) {
+                        throw new UploadSizeExceededException("Upload exceeds the maximum size of " + maxBytes
+                                                              + " bytes");
+                    }
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    buffer.clear();
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                // drop the partly written chunk, the client resumes from the committed offset
+                channel.truncate(offset);
+                throw e;
+            }
+            offset = position;
+            return offset;
+        }
+    }
+
+    /**
+     * @return SHA-256 digest of the uploaded content
+     */
+    public synchronized byte[] digest(int bufferSize) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(DIGEST_ALGORITHM + " is not supported", e);
+        }
+        try (FileChannel channel = FileChannel.open(spoolFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            long position = 0;
+            while (position < offset) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Opens the uploaded content for committing it to the registry.
+     */
+    public synchronized InputStream openContent() throws IOException {
+        return Files.newInputStream(spoolFile, StandardOpenOption.READ);
+    }
+
+    /**
+     * Marks the session as completed so no more chunks are accepted while the content is committed.
+     *
+     * @return false if the session was already completed
+     */
+    public synchronized boolean complete() {
+        if (completed) {
+            return false;
+        }
+        completed = true;
+        return true;
+    }
+
+    /**
+     * Accepts chunks again after a commit failed, so the commit can be retried without uploading the content again.
+     */
+    public synchronized void reopen() {
+        completed = false;
+    }
+
+    public Path getSpoolFile() {
+        return spoolFile;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.upload;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.RemovalListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.rest.api.cache.CacheSettings;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+/**
+ * Keeps the open upload sessions and their spool files.
+ * A session which has been idle for the configured time is dropped together with its spool file, so abandoned
+ * uploads do not fill up the spool directory. The spool file of a session which is being committed is never deleted
+ * by the cache; the commit either removes the session or releases it to be committed again.
+ */
+public class UploadSessionManager {
+
+    public static final String SPOOL_DIRECTORY_PROPERTY = "registry.rest.api.upload.spoolDirectory";
+    public static final String IDLE_TIME_PROPERTY = "registry.rest.api.upload.idleTimeSeconds";
+    public static final String MAX_SESSIONS_PROPERTY = "registry.rest.api.upload.maxSessions";
+    public static final String MAX_BYTES_PROPERTY = "registry.rest.api.upload.maxBytes";
+    public static final String BUFFER_SIZE_PROPERTY = "registry.rest.api.upload.bufferSize";
+
+    private static final long DEFAULT_IDLE_TIME = 3600;
+    private static final int DEFAULT_MAX_SESSIONS = 1000;
+    private static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+    private static final String SPOOL_FILE_PREFIX = "registry-upload-";
+
+    private static Log log = LogFactory.getLog(UploadSessionManager.class);
+
+    private static final long maxBytes = Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES);
+    private static final int bufferSize = Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE);
+
+    // emptied on undeploy like every tracked cache, which deletes the spool files of the open sessions
+    private static final Cache<String, UploadSession> sessions = CacheSettings.track(
+            new CacheSettings(MAX_SESSIONS_PROPERTY, DEFAULT_MAX_SESSIONS, IDLE_TIME_PROPERTY, DEFAULT_IDLE_TIME)
+                    .expireAfterAccess()
+                    .removalListener((RemovalListener<String, UploadSession>) notification ->
+                            onRemoval(notification.getValue()))
+                    .build());
+
+    /**
+     * Opens a new upload session with an empty spool file.
+     *
+     * @param tenantId  tenant id of the user uploading the content
+     * @param userName  user uploading the content
+     * @param path      registry path the content is committed to
+     * @param mediaType media type of the resource
+     * @return the new session
+     */
+    public static UploadSession create(int tenantId, String userName, String path, String mediaType)
+            throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path spoolFile = createSpoolFile(SPOOL_FILE_PREFIX);
+        UploadSession session = new UploadSession(id, tenantId, userName, path, mediaType, spoolFile);
+        sessions.put(id, session);
+        if (log.isDebugEnabled()) {
+            log.debug("Upload session " + id + " opened for " + path + " spooling to " + spoolFile);
+        }
+        return session;
+    }
+
+    /**
+     * @return the session with the given id if it is still open and owned by the given user, otherwise null
+     */
+    public static UploadSession get(String id, int tenantId, String userName) {
+        UploadSession session = sessions.getIfPresent(id);
+        if (session == null || !session.isOwner(tenantId, userName)) {
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Closes the session and deletes its spool file.
+     */
+    public static void remove(UploadSession session) {
+        sessions.invalidate(session.getId());
+        deleteSpoolFile(session);
+    }
+
+    /**
+     * Makes a session whose commit failed available again, with its spool file, so the commit can be retried. The
+     * session is put back if it was dropped from the cache while it was being committed.
+     */
+    public static void release(UploadSession session) {
+        synchronized (session) {
+            sessions.asMap().putIfAbsent(session.getId(), session);
+            session.reopen();
+        }
+    }
+
+    public static long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public static int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Creates an empty file in the spool directory, for content which is spooled to disk before it is stored.
+     */
+    public static Path createSpoolFile(String prefix) throws IOException {
+        return Files.createTempFile(getSpoolDirectory(), prefix, ".tmp");
+    }
+
+    private static Path getSpoolDirectory() throws IOException {
+        Path directory = Paths.get(System.getProperty(SPOOL_DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir")));
+        return Files.createDirectories(directory);
+    }
+
+    private static void onRemoval(UploadSession session) {
+        synchronized (session) {
+            // a committing session owns its spool file, and a released session may have been put back already
+            if (session.isCompleted() || sessions.asMap().get(session.getId()) == session) {
+                return;
+            }
+            deleteSpoolFile(session);
+        }
+    }
+
+    private static void deleteSpoolFile(UploadSession session) {
+        try {
+            Files.deleteIfExists(session.getSpoolFile());
+        } catch (IOException e) {
+            log.warn("Failed to delete the spool file " + session.getSpoolFile() + " of upload session "
+                     + session.getId(), e);
+        }
+    }
+}
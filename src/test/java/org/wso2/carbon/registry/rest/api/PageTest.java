@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PageTest {
+
+    private static final String[] ELEMENTS = { "a", "b", "c", "d", "e" };
+
+    @Test
+    public void testCursorRoundTrip() {
+        String cursor = Page.encodeCursor(40, 20);
+        assertArrayEquals(new Object[] { 40, 20 }, box(Page.decodeCursor(cursor)));
+        // the cursor is used as a query parameter and a header value as it is
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    public void testFollowingCursorsVisitsEveryElementOnce() {
+        Page<String> page = Page.of(ELEMENTS, 0, 2, null);
+        assertEquals(Arrays.asList("a", "b"), page.getElements());
+        page = Page.of(ELEMENTS, 0, 0, page.getNextCursor());
+        assertEquals(Arrays.asList("c", "d"), page.getElements());
+        page = Page.of(ELEMENTS, 0, 0, page.getNextCursor());
+        assertEquals(Arrays.asList("e"), page.getElements());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testCursorOverridesStartAndSize() {
+        Page<String> page = Page.of(ELEMENTS, 0, 1, Page.encodeCursor(3, 5));
+        assertEquals(Arrays.asList("d", "e"), page.getElements());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testAllElementsWithoutPagination() {
+        Page<String> page = Page.of(ELEMENTS, 0, 0, null);
+        assertEquals(Arrays.asList(ELEMENTS), page.getElements());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testEmptyPageAtTheEnd() {
+        Page<String> page = Page.of(ELEMENTS, 5, 2, null);
+        assertTrue(page.getElements().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartOutOfRange() {
+        Page.of(ELEMENTS, 6, 2, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPagination() {
+        Page.of(ELEMENTS, -1, 2, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCursorWithoutSeparator() {
+        Page.decodeCursor(Page.encodeCursor(1, 2).substring(0, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCursorWithNegativeStart() {
+        Page.decodeCursor(Base64.encodeBase64URLSafeString("-1:10".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCursorWithZeroSize() {
+        Page.decodeCursor(Page.encodeCursor(0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGarbageCursor() {
+        Page.decodeCursor("not a cursor");
+    }
+
+    private static Object[] box(int[] values) {
+        Object[] boxed = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+}
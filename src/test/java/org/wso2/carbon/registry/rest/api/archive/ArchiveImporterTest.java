@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.archive;
+
+import org.junit.Test;
+import org.wso2.carbon.registry.rest.api.exception.InvalidArchiveException;
+import org.wso2.carbon.registry.rest.api.model.ImportEntryResultModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ArchiveImporterTest {
+
+    @Test
+    public void testEntriesResolveBelowTheTargetCollection() {
+        assertEquals("/target/a.txt", ArchiveImporter.resolvePath("/target", "a.txt"));
+        assertEquals("/target/a/b/c.txt", ArchiveImporter.resolvePath("/target", "a/b/c.txt"));
+        assertEquals("/a.txt", ArchiveImporter.resolvePath("/", "a.txt"));
+        assertEquals("/target/..a", ArchiveImporter.resolvePath("/target", "..a"));
+    }
+
+    @Test
+    public void testEntriesEscapingTheTargetCollectionAreRejected() {
+        for (String entryName : Arrays.asList("", "..", "../a.txt", "a/../../b.txt", "a/..", "./a.txt", "a/./b",
+                                              "a//b", "/etc/passwd", "a\\..\\b", "..\\a.txt", "a.txt;version:1")) {
+            assertNull(entryName, ArchiveImporter.resolvePath("/target", entryName));
+        }
+    }
+
+    @Test
+    public void testTraversalEntryIsReportedWithoutWriting() throws Exception {
+        // no registry, any attempt to write the entry fails the test
+        ArchiveImporter importer = new ArchiveImporter(null, 1, "carbon.super", "admin", "/target");
+        List<ImportEntryResultModel> results = importer.importArchive(
+                new ByteArrayInputStream(zip("../escaped.txt", new byte[10])));
+        assertEquals(1, results.size());
+        assertEquals(ImportEntryResultModel.FAILED, results.get(0).getStatus());
+    }
+
+    @Test(expected = InvalidArchiveException.class)
+    public void testTruncatedArchiveIsInvalid() throws Exception {
+        byte[] content = new byte[4096];
+        new Random(1).nextBytes(content);
+        byte[] archive = zip("a.txt", content);
+        ArchiveImporter importer = new ArchiveImporter(null, 1, "carbon.super", "admin", "/target");
+        importer.importArchive(new ByteArrayInputStream(Arrays.copyOf(archive, archive.length / 2)));
+    }
+
+    private static byte[] zip(String entryName, byte[] content) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zipStream = new ZipOutputStream(archive)) {
+            zipStream.putNextEntry(new ZipEntry(entryName));
+            zipStream.write(content);
+            zipStream.closeEntry();
+        }
+        return archive.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import org.junit.Test;
+import org.wso2.carbon.registry.rest.api.model.ResourceModel;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MetaDataCacheTest {
+
+    // the cache is static, every test uses tenants of its own
+    private static final AtomicInteger tenants = new AtomicInteger(1000);
+
+    private static final String USER = "admin";
+
+    @Test
+    public void testCachedEntryIsServed() {
+        int tenantId = tenants.incrementAndGet();
+        MetaDataCache.Entry entry = put(tenantId, USER, "/a/b");
+        assertSame(entry, MetaDataCache.get(tenantId, USER, "/a/b"));
+    }
+
+    @Test
+    public void testEntriesArePerUser() {
+        int tenantId = tenants.incrementAndGet();
+        put(tenantId, USER, "/a/b");
+        assertNull(MetaDataCache.get(tenantId, "other", "/a/b"));
+    }
+
+    @Test
+    public void testWriteInvalidatesPathDescendantsAndParent() {
+        int tenantId = tenants.incrementAndGet();
+        put(tenantId, USER, "/a");
+        put(tenantId, USER, "/a/b");
+        put(tenantId, USER, "/a/b/c");
+        put(tenantId, USER, "/a/d");
+        MetaDataCache.invalidate(tenantId, "/a/b");
+        assertNull(MetaDataCache.get(tenantId, USER, "/a/b"));
+        assertNull(MetaDataCache.get(tenantId, USER, "/a/b/c"));
+        // the parent lists the child, the sibling is not affected
+        assertNull(MetaDataCache.get(tenantId, USER, "/a"));
+        assertNotNull(MetaDataCache.get(tenantId, USER, "/a/d"));
+    }
+
+    @Test
+    public void testLoadRacingWithWriteIsNotCached() {
+        int tenantId = tenants.incrementAndGet();
+        long version = MetaDataCache.getVersion();
+        // the resource is written while its metadata is being read
+        MetaDataCache.invalidate(tenantId, "/a/b");
+        MetaDataCache.put(tenantId, USER, "/a/b", version, newEntry());
+        assertNull(MetaDataCache.get(tenantId, USER, "/a/b"));
+    }
+
+    @Test
+    public void testEntryCachedAfterWriteIsServed() {
+        int tenantId = tenants.incrementAndGet();
+        MetaDataCache.invalidate(tenantId, "/a/b");
+        MetaDataCache.Entry entry = put(tenantId, USER, "/a/b");
+        assertSame(entry, MetaDataCache.get(tenantId, USER, "/a/b"));
+    }
+
+    @Test
+    public void testWriteInOtherTenantKeepsEntries() {
+        int tenantId = tenants.incrementAndGet();
+        put(tenantId, USER, "/a/b");
+        MetaDataCache.invalidate(tenants.incrementAndGet(), "/a/b");
+        assertNotNull(MetaDataCache.get(tenantId, USER, "/a/b"));
+    }
+
+    private static MetaDataCache.Entry put(int tenantId, String userName, String path) {
+        MetaDataCache.Entry entry = newEntry();
+        MetaDataCache.put(tenantId, userName, path, MetaDataCache.getVersion(), entry);
+        return entry;
+    }
+
+    private static MetaDataCache.Entry newEntry() {
+        return new MetaDataCache.Entry(new ResourceModel(), null, null);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PathInvalidationsTest {
+
+    private static final int TENANT_ID = 1;
+
+    private PathInvalidations invalidations;
+
+    @Before
+    public void setUp() {
+        invalidations = new PathInvalidations(new CacheSettings("registry.rest.api.test.cache.size", 100,
+                                                                "registry.rest.api.test.cache.ttlSeconds", 60));
+    }
+
+    @Test
+    public void testValueLoadedBeforeInvalidationIsStale() {
+        long loadVersion = invalidations.getVersion();
+        invalidations.invalidate(TENANT_ID, "/a/b", false);
+        assertTrue(invalidations.isStale(TENANT_ID, "/a/b", loadVersion));
+    }
+
+    @Test
+    public void testValueLoadedAfterInvalidationIsValid() {
+        invalidations.invalidate(TENANT_ID, "/a/b", false);
+        long loadVersion = invalidations.getVersion();
+        assertFalse(invalidations.isStale(TENANT_ID, "/a/b", loadVersion));
+    }
+
+    @Test
+    public void testPathInvalidationKeepsDescendants() {
+        long loadVersion = invalidations.getVersion();
+        invalidations.invalidate(TENANT_ID, "/a", false);
+        assertTrue(invalidations.isStale(TENANT_ID, "/a", loadVersion));
+        assertFalse(invalidations.isStale(TENANT_ID, "/a/b", loadVersion));
+    }
+
+    @Test
+    public void testSubtreeInvalidationCoversDescendantsAndVersions() {
+        long loadVersion = invalidations.getVersion();
+        invalidations.invalidate(TENANT_ID, "/a", true);
+        assertTrue(invalidations.isStale(TENANT_ID, "/a", loadVersion));
+        assertTrue(invalidations.isStale(TENANT_ID, "/a/b/c", loadVersion));
+        assertTrue(invalidations.isStale(TENANT_ID, "/a/b;version:3", loadVersion));
+        assertFalse(invalidations.isStale(TENANT_ID, "/ab", loadVersion));
+        assertFalse(invalidations.isStale(TENANT_ID, "/", loadVersion));
+    }
+
+    @Test
+    public void testInvalidationIsPerTenant() {
+        long loadVersion = invalidations.getVersion();
+        invalidations.invalidate(TENANT_ID, "/", true);
+        assertFalse(invalidations.isStale(TENANT_ID + 1, "/a", loadVersion));
+    }
+
+    @Test
+    public void testTrailingSeparatorIsIgnored() {
+        long loadVersion = invalidations.getVersion();
+        invalidations.invalidate(TENANT_ID, "/a/", false);
+        assertTrue(invalidations.isStale(TENANT_ID, "/a", loadVersion));
+    }
+
+    @Test
+    public void testDroppedRecordMakesOlderValuesStale() {
+        invalidations = new PathInvalidations(new CacheSettings("registry.rest.api.test.cache.size", 2,
+                                                                "registry.rest.api.test.cache.ttlSeconds", 60));
+        long loadVersion = invalidations.getVersion();
+        invalidations.invalidate(TENANT_ID, "/a", false);
+        invalidations.invalidate(TENANT_ID, "/b", false);
+        invalidations.invalidate(TENANT_ID, "/c", false);
+        // one of the records was evicted, a value of any path loaded before could have lost its record
+        assertTrue(invalidations.isStale(TENANT_ID, "/d", loadVersion));
+        assertFalse(invalidations.isStale(TENANT_ID, "/d", invalidations.getVersion()));
+    }
+
+    @Test
+    public void testGetParent() {
+        assertEquals("/a", PathInvalidations.getParent("/a/b"));
+        assertEquals("/", PathInvalidations.getParent("/a"));
+        assertEquals("/a/b", PathInvalidations.getParent("/a/b;version:3"));
+        assertNull(PathInvalidations.getParent("/"));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RatingAggregateStoreTest {
+
+    private static final String PATH = "/_system/governance/services/echo";
+    private static final float DELTA = 0.0001f;
+    private static final int QUERIES_PER_SEED = RatingAggregateStore.MAX_RATING - RatingAggregateStore.MIN_RATING + 1;
+
+    // every test uses its own tenant, so the aggregates seeded by other tests are not seen
+    private static final AtomicInteger tenantIds = new AtomicInteger(7000);
+
+    private final Map<String, Integer> ratings = new ConcurrentHashMap<String, Integer>();
+    private int tenantId;
+    private UserRegistry systemRegistry;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws RegistryException {
+        tenantId = tenantIds.incrementAndGet();
+        systemRegistry = mock(UserRegistry.class);
+        when(systemRegistry.resourceExists(anyString())).thenReturn(true);
+        when(systemRegistry.executeQuery(anyString(), anyMap()))
+                .thenAnswer(invocation -> query(invocation.getArgument(1)));
+        RegistryService registryService = mock(RegistryService.class);
+        when(registryService.getSystemRegistry(anyInt())).thenReturn(systemRegistry);
+        UserRegistryCache.setRegistryService(registryService);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        UserRegistryCache.setRegistryService(null);
+    }
+
+    @Test
+    public void averageIsSeededFromRatingsQuery() throws RegistryException {
+        ratings.put("alice", 5);
+        ratings.put("bob", 5);
+        ratings.put("carol", 3);
+
+        assertEquals(13f / 3, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+        assertEquals(13f / 3, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+        verify(systemRegistry, times(QUERIES_PER_SEED)).executeQuery(anyString(), anyMap());
+    }
+
+    @Test
+    public void unratedResourceHasZeroAverage() throws RegistryException {
+        assertEquals(0f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+    }
+
+    @Test
+    public void ratesAreAppliedToSeededAggregate() throws RegistryException {
+        ratings.put("alice", 5);
+        ratings.put("bob", 3);
+        assertEquals(4f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+
+        RatingAggregateStore.rate(userRegistry("carol"), tenantId, "carol", PATH, 1);
+        assertEquals(3f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+        RatingAggregateStore.rate(userRegistry("alice"), tenantId, "alice", PATH, 2);
+        assertEquals(2f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+        RatingAggregateStore.rate(userRegistry("bob"), tenantId, "bob", PATH, 0);
+        assertEquals(1.5f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+        verify(systemRegistry, times(QUERIES_PER_SEED)).executeQuery(anyString(), anyMap());
+    }
+
+    @Test
+    public void invalidatedAggregateIsSeededAgain() throws RegistryException {
+        ratings.put("alice", 4);
+        assertEquals(4f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+
+        // rated outside this API, seen only once the aggregate is dropped
+        ratings.put("bob", 2);
+        assertEquals(4f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+        RatingAggregateStore.invalidate(tenantId, "/_system/governance/services");
+        assertEquals(3f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+        verify(systemRegistry, times(2 * QUERIES_PER_SEED)).executeQuery(anyString(), anyMap());
+    }
+
+    @Test
+    public void averageIsReadFromRegistryWhenSeedFails() throws RegistryException {
+        when(systemRegistry.resourceExists(anyString())).thenReturn(false);
+        Registry registry = mock(Registry.class);
+        when(registry.getAverageRating(PATH)).thenReturn(2.5f);
+
+        assertEquals(2.5f, RatingAggregateStore.getAverageRating(registry, tenantId, PATH), DELTA);
+        assertEquals(2.5f, RatingAggregateStore.getAverageRating(registry, tenantId, PATH), DELTA);
+        // the failed tenant is not seeded again until the retry interval has passed
+        verify(systemRegistry, times(1)).resourceExists(anyString());
+        verify(systemRegistry, never()).executeQuery(anyString(), anyMap());
+    }
+
+    @Test
+    public void rateInProgressIsCountedOnceBySeed() throws Exception {
+        ratings.put("alice", 5);
+        CountDownLatch rated = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Registry bob = userRegistry("bob");
+        doAnswer(invocation -> {
+            ratings.put("bob", invocation.getArgument(1));
+            rated.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(bob).rateResource(anyString(), anyInt());
+
+        Future<?> rate = executor.submit(() -> {
+            RatingAggregateStore.rate(bob, tenantId, "bob", PATH, 3);
+            return null;
+        });
+        assertTrue(rated.await(10, TimeUnit.SECONDS));
+        // the rating is stored but not applied yet, the seed waits for it instead of counting it twice
+        Future<Float> read = executor.submit(
+                () -> RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH));
+        Thread.sleep(200);
+        assertFalse(read.isDone());
+
+        release.countDown();
+        rate.get(10, TimeUnit.SECONDS);
+        assertEquals(4f, read.get(10, TimeUnit.SECONDS), DELTA);
+        assertEquals(4f, RatingAggregateStore.getAverageRating(mock(Registry.class), tenantId, PATH), DELTA);
+    }
+
+    /**
+     * Returns a registry of the user whose rates are stored in the ratings of the test.
+     */
+    private Registry userRegistry(String userName) throws RegistryException {
+        Registry registry = mock(Registry.class);
+        when(registry.getRating(anyString(), anyString()))
+                .thenAnswer(invocation -> ratings.getOrDefault(userName, 0));
+        doAnswer(invocation -> {
+            int rating = invocation.getArgument(1);
+            if (rating == 0) {
+                ratings.remove(userName);
+            } else {
+                ratings.put(userName, rating);
+            }
+            return null;
+        }).when(registry).rateResource(anyString(), anyInt());
+        return registry;
+    }
+
+    /**
+     * Answers the ratings query with the raters who gave the queried stars, as <path>;ratings:<user name>.
+     */
+    private Collection query(Map<String, String> parameters) throws RegistryException {
+        int stars = Integer.parseInt(parameters.get("1"));
+        List<String> children = new ArrayList<String>();
+        for (Map.Entry<String, Integer> rating : ratings.entrySet()) {
+            if (rating.getValue() == stars) {
+                children.add(parameters.get("4") + ";ratings:" + rating.getKey());
+            }
+        }
+        Collection collection = mock(Collection.class);
+        when(collection.getChildren()).thenReturn(children.toArray(new String[0]));
+        return collection;
+    }
+}
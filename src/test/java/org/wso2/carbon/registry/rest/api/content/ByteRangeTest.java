@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.content;
+
+import org.junit.Test;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRangeTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    public void testSingleRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-499", LENGTH);
+        assertEquals(1, ranges.size());
+        assertRange(0, 499, ranges.get(0));
+        assertEquals(500, ranges.get(0).getLength());
+        assertEquals("bytes 0-499/1000", ranges.get(0).toContentRange(LENGTH));
+    }
+
+    @Test
+    public void testOpenEndedRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=900-", LENGTH);
+        assertEquals(1, ranges.size());
+        assertRange(900, 999, ranges.get(0));
+    }
+
+    @Test
+    public void testSuffixRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=-100", LENGTH);
+        assertEquals(1, ranges.size());
+        assertRange(900, 999, ranges.get(0));
+    }
+
+    @Test
+    public void testSuffixLongerThanContent() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=-5000", LENGTH);
+        assertEquals(1, ranges.size());
+        assertRange(0, 999, ranges.get(0));
+    }
+
+    @Test
+    public void testLastPositionBeyondContentIsClamped() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=500-5000", LENGTH);
+        assertEquals(1, ranges.size());
+        assertRange(500, 999, ranges.get(0));
+    }
+
+    @Test
+    public void testMultipleRanges() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9, 20-29,-10", LENGTH);
+        assertEquals(3, ranges.size());
+        assertRange(0, 9, ranges.get(0));
+        assertRange(20, 29, ranges.get(1));
+        assertRange(990, 999, ranges.get(2));
+    }
+
+    @Test
+    public void testUnsatisfiableRangesAreSkipped() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9,2000-2100", LENGTH);
+        assertEquals(1, ranges.size());
+        assertRange(0, 9, ranges.get(0));
+    }
+
+    @Test
+    public void testNoSatisfiableRange() {
+        assertTrue(ByteRange.parse("bytes=1000-", LENGTH).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", LENGTH).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-", 0).isEmpty());
+    }
+
+    @Test
+    public void testInvalidHeadersAreIgnored() {
+        assertNull(ByteRange.parse(null, LENGTH));
+        assertNull(ByteRange.parse("items=0-9", LENGTH));
+        assertNull(ByteRange.parse("bytes=10", LENGTH));
+        assertNull(ByteRange.parse("bytes=a-b", LENGTH));
+        assertNull(ByteRange.parse("bytes=20-10", LENGTH));
+        assertNull(ByteRange.parse("bytes=-", LENGTH));
+    }
+
+    @Test
+    public void testTooManyRangesAreIgnored() {
+        StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 16; i++) {
+            header.append(',').append(i * 10).append('-').append(i * 10);
+        }
+        assertNull(ByteRange.parse(header.toString(), LENGTH));
+    }
+
+    private static void assertRange(long first, long last, ByteRange range) {
+        assertEquals(first, range.getFirst());
+        assertEquals(last, range.getLast());
+    }
+}
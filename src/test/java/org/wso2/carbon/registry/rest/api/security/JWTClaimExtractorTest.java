@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.security;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import static org.junit.Assert.assertEquals;
+
+public class JWTClaimExtractorTest {
+
+	private static String token(String payload) {
+		return "eyJhbGciOiJSUzI1NiJ9." + Base64.encodeBase64URLSafeString(payload.getBytes(StandardCharsets.UTF_8))
+				+ ".c2ln";
+	}
+
+	@Test
+	public void expInSecondsIsConvertedToMilliseconds() throws IOException {
+		JWTClaims claims = JWTClaimExtractor.extract(token("{\"exp\":1700000000}"));
+		assertEquals(1700000000000L, claims.getExpiryTime());
+	}
+
+	@Test
+	public void expInMillisecondsIsKept() throws IOException {
+		JWTClaims claims = JWTClaimExtractor.extract(token("{\"exp\":1700000000123}"));
+		assertEquals(1700000000123L, claims.getExpiryTime());
+	}
+
+	@Test
+	public void missingExpLeavesExpiryUnset() throws IOException {
+		JWTClaims claims = JWTClaimExtractor.extract(token("{\"http://wso2.org/claims/enduser\":\"admin\"}"));
+		assertEquals(-1, claims.getExpiryTime());
+	}
+
+	@Test
+	public void nonNumericExpLeavesExpiryUnset() throws IOException {
+		JWTClaims claims = JWTClaimExtractor.extract(token("{\"exp\":\"never\"}"));
+		assertEquals(-1, claims.getExpiryTime());
+	}
+
+	@Test
+	public void claimsAreReadInAnyOrderAndNestedValuesAreSkipped() throws IOException {
+		JWTClaims claims = JWTClaimExtractor.extract(token("{\"exp\":1700000000,"
+				+ "\"aud\":{\"exp\":1,\"http://wso2.org/claims/enduser\":\"nested\"},"
+				+ "\"roles\":[\"a\",{\"exp\":2}],"
+				+ "\"http://wso2.org/claims/enduserTenantId\":\"-1234\","
+				+ "\"http://wso2.org/claims/enduser\":\"admin@carbon.super\"}"));
+		assertEquals("admin@carbon.super", claims.getEndUser());
+		assertEquals("-1234", claims.getEndUserTenantId());
+		assertEquals(1700000000000L, claims.getExpiryTime());
+	}
+
+	@Test(expected = IOException.class)
+	public void tokenWithoutSignatureSectionIsRejected() throws IOException {
+		JWTClaimExtractor.extract("eyJhbGciOiJSUzI1NiJ9");
+	}
+
+	@Test(expected = IOException.class)
+	public void payloadThatIsNotAnObjectIsRejected() throws IOException {
+		JWTClaimExtractor.extract(token("[\"exp\",1700000000]"));
+	}
+}
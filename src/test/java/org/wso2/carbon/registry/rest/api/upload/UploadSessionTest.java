@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.rest.api.upload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.carbon.registry.rest.api.exception.UploadSizeExceededException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UploadSessionTest {
+
+    private static final int TENANT_ID = 1;
+    private static final String USER = "admin";
+    private static final long MAX_BYTES = 64;
+    private static final int BUFFER_SIZE = 4;
+
+    private UploadSession session;
+
+    @Before
+    public void setUp() throws IOException {
+        session = UploadSessionManager.create(TENANT_ID, USER, "/a/b.txt", "text/plain");
+    }
+
+    @After
+    public void tearDown() {
+        UploadSessionManager.remove(session);
+    }
+
+    @Test
+    public void testChunksAreAppendedAtTheOffset() throws Exception {
+        assertEquals(5, session.append(stream("hello"), MAX_BYTES, BUFFER_SIZE));
+        assertEquals(11, session.append(stream(" world"), MAX_BYTES, BUFFER_SIZE));
+        assertEquals(11, session.getOffset());
+        assertArrayEquals(bytes("hello world"), Files.readAllBytes(session.getSpoolFile()));
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(bytes("hello world")),
+                          session.digest(BUFFER_SIZE));
+    }
+
+    @Test
+    public void testFailedChunkIsTruncated() throws Exception {
+        session.append(stream("hello"), MAX_BYTES, BUFFER_SIZE);
+        try {
+            session.append(new FailingStream(bytes(" wor")), MAX_BYTES, BUFFER_SIZE);
+            fail("The chunk should have failed");
+        } catch (IOException e) {
+            // expected, the connection of the client dropped
+        }
+        assertEquals(5, session.getOffset());
+        assertEquals(5, Files.size(session.getSpoolFile()));
+        // the client resumes from the committed offset
+        assertEquals(11, session.append(stream(" world"), MAX_BYTES, BUFFER_SIZE));
+        assertArrayEquals(bytes("hello world"), Files.readAllBytes(session.getSpoolFile()));
+    }
+
+    @Test
+    public void testChunkExceedingTheMaximumSizeIsTruncated() throws Exception {
+        session.append(stream("hello"), 8, BUFFER_SIZE);
+        try {
+            session.append(stream(" world"), 8, BUFFER_SIZE);
+            fail("The chunk should have exceeded the maximum size");
+        } catch (UploadSizeExceededException e) {
+            // expected
+        }
+        assertEquals(5, session.getOffset());
+        assertEquals(5, Files.size(session.getSpoolFile()));
+    }
+
+    @Test
+    public void testCompletedSessionRejectsChunksUntilReleased() throws Exception {
+        assertTrue(session.complete());
+        assertFalse(session.complete());
+        try {
+            session.append(stream("hello"), MAX_BYTES, BUFFER_SIZE);
+            fail("A completed session should not accept chunks");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        UploadSessionManager.release(session);
+        assertEquals(5, session.append(stream("hello"), MAX_BYTES, BUFFER_SIZE));
+    }
+
+    @Test
+    public void testSessionIsOnlyVisibleToItsOwner() {
+        assertSame(session, UploadSessionManager.get(session.getId(), TENANT_ID, USER));
+        assertNull(UploadSessionManager.get(session.getId(), TENANT_ID, "other"));
+        assertNull(UploadSessionManager.get(session.getId(), TENANT_ID + 1, USER));
+    }
+
+    @Test
+    public void testRemoveDeletesTheSpoolFile() {
+        UploadSessionManager.remove(session);
+        assertNull(UploadSessionManager.get(session.getId(), TENANT_ID, USER));
+        assertFalse(Files.exists(session.getSpoolFile()));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(bytes(content));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the given bytes, then fails like a dropped connection.
+     */
+    private static class FailingStream extends InputStream {
+
+        private final InputStream content;
+
+        private FailingStream(byte[] content) {
+            this.content = new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = content.read();
+            if (read < 0) {
+                throw new IOException("Connection reset");
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = content.read(bytes, offset, length);
+            if (read < 0) {
+                throw new IOException("Connection reset");
+            }
+            return read;
+        }
+    }
+}